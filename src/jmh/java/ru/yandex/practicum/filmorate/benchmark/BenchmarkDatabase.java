@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Встроенная H2 со схемой приложения за пулом Hikari, как в приложении, заполненная случайными,
+ * но воспроизводимыми данными. Пользователи и фильмы получают идентификаторы 1..users и 1..films.
+ */
+final class BenchmarkDatabase {
+
+    private static final long SEED = 42;
+    private static final int GENRES = 6;
+    private static final int MPA_RATINGS = 5;
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final List<int[]> likes = new ArrayList<>();
+    private final List<int[]> friendships = new ArrayList<>();
+
+    BenchmarkDatabase(int users, int films, int likeCount, int friendshipCount) {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        Random random = new Random(SEED);
+        insertUsers(users);
+        insertFilms(films, random);
+        likes.addAll(randomPairs(random, likeCount, films, users, false));
+        friendships.addAll(randomPairs(random, friendshipCount, users, users, true));
+        jdbcTemplate.batchUpdate("INSERT INTO films_likes (film_id, user_id) VALUES (?, ?)", likes, 1000,
+                (stmt, like) -> {
+                    stmt.setInt(1, like[0]);
+                    stmt.setInt(2, like[1]);
+                });
+        jdbcTemplate.update("UPDATE films AS f SET like_count = " +
+                "(SELECT COUNT(*) FROM films_likes AS l WHERE l.film_id = f.film_id)");
+        jdbcTemplate.batchUpdate("INSERT INTO friend_list (user_id, friend_id, confirmed) VALUES (?, ?, TRUE)",
+                friendships, 1000, (stmt, friendship) -> {
+                    stmt.setInt(1, friendship[0]);
+                    stmt.setInt(2, friendship[1]);
+                });
+    }
+
+    JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    DataSource getDataSource() {
+        return dataSource;
+    }
+
+    // пары (film_id, user_id)
+    List<int[]> getLikes() {
+        return likes;
+    }
+
+    // пары (user_id, friend_id)
+    List<int[]> getFriendships() {
+        return friendships;
+    }
+
+    void shutdown() {
+        jdbcTemplate.execute("SHUTDOWN");
+        dataSource.close();
+    }
+
+    private void insertUsers(int users) {
+        List<Integer> ids = range(users);
+        jdbcTemplate.batchUpdate("INSERT INTO users (user_name, user_email, user_login, user_birthday) " +
+                "VALUES (?, ?, ?, ?)", ids, 1000, (stmt, id) -> {
+                    stmt.setString(1, "User " + id);
+                    stmt.setString(2, "user" + id + "@bench.ru");
+                    stmt.setString(3, "user" + id);
+                    stmt.setDate(4, Date.valueOf(LocalDate.of(1990, 1, 1)));
+                });
+    }
+
+    private void insertFilms(int films, Random random) {
+        List<Integer> ids = range(films);
+        jdbcTemplate.batchUpdate("INSERT INTO films (name, description, release_date, duration, mpa_id) " +
+                "VALUES (?, ?, ?, ?, ?)", ids, 1000, (stmt, id) -> {
+                    stmt.setString(1, "Фильм " + id);
+                    stmt.setString(2, "Описание фильма " + id);
+                    stmt.setDate(3, Date.valueOf(LocalDate.of(1950 + id % 70, 1, 1)));
+                    stmt.setInt(4, 90 + id % 60);
+                    stmt.setInt(5, 1 + id % MPA_RATINGS);
+                });
+        List<int[]> filmGenres = new ArrayList<>();
+        for (int filmId = 1; filmId <= films; filmId++) {
+            int first = 1 + random.nextInt(GENRES);
+            filmGenres.add(new int[]{filmId, first});
+            if (random.nextBoolean()) {
+                filmGenres.add(new int[]{filmId, 1 + first % GENRES});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO films_genres (film_id, genre_id) VALUES (?, ?)", filmGenres, 1000,
+                (stmt, filmGenre) -> {
+                    stmt.setInt(1, filmGenre[0]);
+                    stmt.setInt(2, filmGenre[1]);
+                });
+    }
+
+    private static List<int[]> randomPairs(Random random, int count, int leftBound, int rightBound,
+                                           boolean distinct) {
+        long capacity = (long) leftBound * rightBound - (distinct ? Math.min(leftBound, rightBound) : 0);
+        int target = (int) Math.min(count, capacity);
+        Set<Long> seen = new HashSet<>();
+        List<int[]> pairs = new ArrayList<>(target);
+        while (pairs.size() < target) {
+            int left = 1 + random.nextInt(leftBound);
+            int right = 1 + random.nextInt(rightBound);
+            if ((distinct && left == right) || !seen.add(((long) left << 32) | right)) {
+                continue;
+            }
+            pairs.add(new int[]{left, right});
+        }
+        return pairs;
+    }
+
+    private static List<Integer> range(int size) {
+        List<Integer> ids = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            ids.add(i);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.service.ImportService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность приложения целиком при 2000 одновременных клиентов: каждый вызов — волна
+ * из CLIENTS параллельных GET-запросов (фильм, популярные, друзья пользователя) по HTTP к запущенному
+ * приложению с базой в памяти. Параметр mode переключает filmorate.execution.mode;
+ * virtual запускается только на Java 21: mvn -Pjmh,java21 ... -Djmh.args="ConcurrentClientsBenchmark".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ConcurrentClientsBenchmark {
+
+    private static final int CLIENTS = 2000;
+
+    @Param({"platform", "virtual"})
+    private String mode;
+
+    @Param("1000")
+    private int users;
+
+    @Param("1000")
+    private int films;
+
+    @Param("20000")
+    private int likes;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private HttpRequest[] requests;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = new SpringApplication(FilmorateApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:concurrent-clients;DB_CLOSE_DELAY=-1",
+                "--filmorate.execution.mode=" + mode,
+                "--logging.level.root=WARN",
+                "--logging.level.org.zalando.logbook=OFF");
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        loadData(context.getBean(ImportService.class));
+
+        // клиенты держат соединения между волнами, как браузеры с keep-alive
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        Random random = new Random(42);
+        requests = new HttpRequest[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            String path;
+            switch (i % 3) {
+                case 0:
+                    path = "/films/" + (1 + random.nextInt(films));
+                    break;
+                case 1:
+                    path = "/films/popular?count=10";
+                    break;
+                default:
+                    path = "/users/" + (1 + random.nextInt(users)) + "/friends";
+            }
+            requests[i] = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CLIENTS)
+    public int requestWave() {
+        @SuppressWarnings("unchecked")
+        CompletableFuture<HttpResponse<byte[]>>[] responses = new CompletableFuture[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            responses[i] = httpClient.sendAsync(requests[i], HttpResponse.BodyHandlers.ofByteArray());
+        }
+        int bytes = 0;
+        for (CompletableFuture<HttpResponse<byte[]>> response : responses) {
+            HttpResponse<byte[]> httpResponse = response.join();
+            if (httpResponse.statusCode() != 200) {
+                throw new IllegalStateException(httpResponse.uri() + " вернул " + httpResponse.statusCode());
+            }
+            bytes += httpResponse.body().length;
+        }
+        return bytes;
+    }
+
+    // данные загружаются через NDJSON-импорт, как у партнеров
+    private void loadData(ImportService importService) throws IOException {
+        Random random = new Random(42);
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 1; i <= users; i++) {
+            ndjson.append("{\"email\":\"user").append(i).append("@bench.ru\",\"login\":\"user").append(i)
+                    .append("\",\"name\":\"User ").append(i).append("\",\"birthday\":\"1990-01-01\"}\n");
+        }
+        importService.importUsers(body(ndjson));
+
+        ndjson.setLength(0);
+        for (int i = 1; i <= films; i++) {
+            ndjson.append("{\"name\":\"Фильм ").append(i).append("\",\"description\":\"Описание фильма ").append(i)
+                    .append("\",\"releaseDate\":\"2000-01-01\",\"duration\":100,\"mpa\":{\"id\":")
+                    .append(1 + i % 5).append("},\"genres\":[{\"id\":").append(1 + i % 6).append("}]}\n");
+        }
+        importService.importFilms(body(ndjson));
+
+        ndjson.setLength(0);
+        for (int i = 0; i < likes; i++) {
+            ndjson.append("{\"filmId\":").append(1 + random.nextInt(films))
+                    .append(",\"userId\":").append(1 + random.nextInt(users)).append("}\n");
+        }
+        importService.importLikes(body(ndjson));
+
+        ndjson.setLength(0);
+        for (int i = 1; i <= users; i++) {
+            for (int j = 0; j < 10; j++) {
+                int friendId = 1 + random.nextInt(users);
+                if (friendId != i) {
+                    ndjson.append("{\"userId\":").append(i).append(",\"friendId\":").append(friendId).append("}\n");
+                }
+            }
+        }
+        importService.importFriendships(body(ndjson));
+    }
+
+    private static ByteArrayInputStream body(StringBuilder ndjson) {
+        return new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.cache.CachedGenreDao;
+import ru.yandex.practicum.filmorate.storage.cache.CachedMpaDao;
+import ru.yandex.practicum.filmorate.storage.film.daoImpl.GenreDaoImpl;
+import ru.yandex.practicum.filmorate.storage.film.daoImpl.LikesDaoImpl;
+import ru.yandex.practicum.filmorate.storage.film.daoImpl.MpaDaoImpl;
+import ru.yandex.practicum.filmorate.storage.film.storageImpl.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.storageImpl.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilmStorageBenchmark {
+
+    @Param("1000")
+    private int users;
+
+    @Param("1000")
+    private int films;
+
+    @Param("20000")
+    private int likes;
+
+    @Param("10")
+    private int popularCount;
+
+    private BenchmarkDatabase database;
+    private FilmDbStorage filmDbStorage;
+    private LikesDaoImpl likesDao;
+    private InMemoryFilmStorage inMemoryFilmStorage;
+    private int likerId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(users, films, likes, 0);
+        JdbcTemplate jdbcTemplate = database.getJdbcTemplate();
+        likesDao = new LikesDaoImpl(jdbcTemplate);
+        CachedGenreDao genreDao = new CachedGenreDao(new GenreDaoImpl(jdbcTemplate));
+        genreDao.load();
+        CachedMpaDao mpaDao = new CachedMpaDao(new MpaDaoImpl(jdbcTemplate));
+        mpaDao.load();
+        filmDbStorage = new FilmDbStorage(jdbcTemplate, likesDao, genreDao, mpaDao);
+        filmDbStorage.detectArrayAggSupport();
+
+        // пользователь без лайков для замера записи лайка
+        jdbcTemplate.update("INSERT INTO users (user_name, user_email, user_login, user_birthday) " +
+                "VALUES ('Liker', 'liker@bench.ru', 'liker', '1990-01-01')");
+        likerId = jdbcTemplate.queryForObject("SELECT MAX(user_id) FROM users", Integer.class);
+
+        inMemoryFilmStorage = new InMemoryFilmStorage();
+        List<Set<Integer>> filmLikes = new ArrayList<>();
+        for (int filmId = 1; filmId <= films; filmId++) {
+            filmLikes.add(new HashSet<>());
+        }
+        for (int[] like : database.getLikes()) {
+            filmLikes.get(like[0] - 1).add(like[1]);
+        }
+        for (int filmId = 1; filmId <= films; filmId++) {
+            inMemoryFilmStorage.createFilm(new Film(null, "Фильм " + filmId, "Описание фильма " + filmId,
+                    LocalDate.of(2000, 1, 1), 100, new Mpa(1, "G", null), filmLikes.get(filmId - 1),
+                    new ArrayList<>()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public Collection<Film> dbFindPopularFilms() {
+        return filmDbStorage.findPopularFilms(popularCount, null, null);
+    }
+
+    @Benchmark
+    public Collection<Film> dbFindPopularFilmsByGenreAndYear() {
+        return filmDbStorage.findPopularFilms(popularCount, 1, 2000);
+    }
+
+    @Benchmark
+    public Collection<Film> dbFindAll() {
+        return filmDbStorage.findAll();
+    }
+
+    @Benchmark
+    public Film dbFindFilmById() {
+        return filmDbStorage.findFilmById(randomFilmId());
+    }
+
+    @Benchmark
+    public Film dbFindFilmSummaryById() {
+        return filmDbStorage.findFilmSummaryById(randomFilmId());
+    }
+
+    @Benchmark
+    public Set<Integer> likesGetFilmLikes() {
+        return likesDao.getFilmLikes(randomFilmId());
+    }
+
+    @Benchmark
+    public boolean likesAddAndDeleteLike() {
+        int filmId = randomFilmId();
+        likesDao.addLikeToFilm(filmId, likerId);
+        return likesDao.deleteLikeFromFilm(filmId, likerId);
+    }
+
+    @Benchmark
+    public Collection<Film> inMemoryFindPopularFilms() {
+        return inMemoryFilmStorage.findPopularFilms(popularCount, null, null);
+    }
+
+    @Benchmark
+    public Collection<Film> inMemoryFindAll() {
+        return inMemoryFilmStorage.findAll();
+    }
+
+    @Benchmark
+    public Film inMemoryFindFilmById() {
+        return inMemoryFilmStorage.findFilmById(randomFilmId());
+    }
+
+    private int randomFilmId() {
+        return 1 + ThreadLocalRandom.current().nextInt(films);
+    }
+}
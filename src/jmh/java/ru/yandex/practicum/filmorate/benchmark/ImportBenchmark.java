@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FilteredPopularityIndex;
+import ru.yandex.practicum.filmorate.service.FriendGraph;
+import ru.yandex.practicum.filmorate.service.ImportService;
+import ru.yandex.practicum.filmorate.service.LikesIndex;
+import ru.yandex.practicum.filmorate.service.PopularityIndex;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.cache.CachedGenreDao;
+import ru.yandex.practicum.filmorate.storage.cache.CachedMpaDao;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.dao.LikesDao;
+import ru.yandex.practicum.filmorate.storage.film.daoImpl.GenreDaoImpl;
+import ru.yandex.practicum.filmorate.storage.film.daoImpl.LikesDaoImpl;
+import ru.yandex.practicum.filmorate.storage.film.daoImpl.MpaDaoImpl;
+import ru.yandex.practicum.filmorate.storage.film.storageImpl.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.user.daoImpl.FriendListDaoImpl;
+import ru.yandex.practicum.filmorate.storage.user.storageImpl.UserDbStorage;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// время загрузки одного фильма через POST /films/batch: разбор NDJSON, проверка, пакетная запись и индексы
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImportBenchmark {
+
+    private static final int FILMS_PER_REQUEST = 10_000;
+
+    private BenchmarkDatabase database;
+    private ImportService importService;
+    private byte[] body;
+
+    @Setup(Level.Trial)
+    public void createBody() {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 1; i <= FILMS_PER_REQUEST; i++) {
+            ndjson.append("{\"name\":\"Фильм партнера ").append(i)
+                    .append("\",\"description\":\"Описание фильма партнера номер ").append(i)
+                    .append("\",\"releaseDate\":\"2000-01-01\",\"duration\":100,\"mpa\":{\"id\":")
+                    .append(1 + i % 5).append("},\"genres\":[{\"id\":").append(1 + i % 6).append("}]}\n");
+        }
+        body = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // база в памяти растет с каждой загрузкой, поэтому на каждую итерацию создается новая
+    @Setup(Level.Iteration)
+    public void setUp() {
+        database = new BenchmarkDatabase(1, 1, 0, 0);
+        JdbcTemplate jdbcTemplate = database.getJdbcTemplate();
+        LikesDaoImpl likesDao = new LikesDaoImpl(jdbcTemplate);
+        CachedGenreDao genreDao = new CachedGenreDao(new GenreDaoImpl(jdbcTemplate));
+        genreDao.load();
+        CachedMpaDao mpaDao = new CachedMpaDao(new MpaDaoImpl(jdbcTemplate));
+        mpaDao.load();
+        FilmStorage filmStorage = transactional(new FilmDbStorage(jdbcTemplate, likesDao, genreDao, mpaDao));
+        UserStorage userStorage = transactional(new UserDbStorage(jdbcTemplate));
+        LikesDao transactionalLikesDao = transactional(likesDao);
+        RecommendationService recommendationService = new RecommendationService(new LikesIndex(),
+                transactionalLikesDao, filmStorage, userStorage, 20, 10000);
+        FilmService filmService = new FilmService(filmStorage, transactionalLikesDao, new PopularityIndex(),
+                new FilteredPopularityIndex(), recommendationService, new FilmSearchIndex(), new EntityVersions());
+        UserService userService = new UserService(userStorage, new FriendListDaoImpl(jdbcTemplate),
+                new FriendGraph(), new EntityVersions());
+        importService = new ImportService(filmService, userService, transactionalLikesDao, userStorage, mpaDao,
+                genreDao, Validation.buildDefaultValidatorFactory().getValidator(),
+                new ObjectMapper().findAndRegisterModules(), 1000, 1000);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILMS_PER_REQUEST)
+    public ImportResult importFilms() throws IOException {
+        return importService.importFilms(new ByteArrayInputStream(body));
+    }
+
+    // @Transactional вне контекста Spring: транзакция на каждую пачку, как в приложении
+    @SuppressWarnings("unchecked")
+    private <T> T transactional(T target) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addAdvice(new TransactionInterceptor(new DataSourceTransactionManager(database.getDataSource()),
+                new AnnotationTransactionAttributeSource()));
+        return (T) proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.LikesIndex;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.storage.film.daoImpl.LikesDaoImpl;
+import ru.yandex.practicum.filmorate.storage.film.storageImpl.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.storageImpl.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Расчет рекомендаций фильмов без базы данных: лайки распределены неравномерно,
+ * как в реальном каталоге, где малая часть фильмов собирает большую часть лайков.
+ * Режим SampleTime показывает перцентили времени ответа (p99 в отчете JMH).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class RecommendationBenchmark {
+
+    @Param("100000")
+    private int users;
+
+    @Param("10000")
+    private int films;
+
+    @Param("1000000")
+    private int likes;
+
+    // 0 — кэш отключен, каждый вызов считает рекомендации заново
+    @Param("0")
+    private int cacheSize;
+
+    private RecommendationService recommendationService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        for (int filmId = 1; filmId <= films; filmId++) {
+            filmStorage.createFilm(new Film(null, "Фильм " + filmId, "Описание фильма " + filmId,
+                    LocalDate.of(2000, 1, 1), 100, new Mpa(1, "G", null), null, null));
+        }
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int userId = 1; userId <= users; userId++) {
+            userStorage.createUser(new User("user" + userId + "@bench.ru", "user" + userId,
+                    "User " + userId, LocalDate.of(1990, 1, 1)));
+        }
+
+        Random random = new Random(42);
+        Map<Integer, List<Integer>> likedFilmIds = new HashMap<>();
+        for (int i = 0; i < likes; i++) {
+            int userId = 1 + random.nextInt(users);
+            double skew = random.nextDouble();
+            int filmId = 1 + (int) (films * skew * skew * skew);
+            likedFilmIds.computeIfAbsent(userId, id -> new ArrayList<>()).add(filmId);
+        }
+        LikesIndex likesIndex = new LikesIndex();
+        likesIndex.load(likedFilmIds);
+
+        recommendationService = new RecommendationService(likesIndex, new LikesDaoImpl(new JdbcTemplate()),
+                filmStorage, userStorage, 20, cacheSize);
+    }
+
+    @Benchmark
+    public Collection<Film> getRecommendations() {
+        return recommendationService.getRecommendations(1 + ThreadLocalRandom.current().nextInt(users), 10);
+    }
+}
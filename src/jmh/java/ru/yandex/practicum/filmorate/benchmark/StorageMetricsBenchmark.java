@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.StorageMetricsAspect;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.user.storageImpl.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// накладные расходы метрик хранилищ: вызов через аспект против прямого вызова
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageMetricsBenchmark {
+
+    private UserStorage plainStorage;
+    private UserStorage instrumentedStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryUserStorage storage = new InMemoryUserStorage();
+        storage.createUser(new User("user@bench.ru", "user", "User", LocalDate.of(1990, 1, 1)));
+        plainStorage = storage;
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(storage);
+        proxyFactory.addAspect(new StorageMetricsAspect(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)));
+        instrumentedStorage = proxyFactory.getProxy();
+    }
+
+    @Benchmark
+    public User plainFindUserById() {
+        return plainStorage.findUserById(1);
+    }
+
+    @Benchmark
+    public User instrumentedFindUserById() {
+        return instrumentedStorage.findUserById(1);
+    }
+}
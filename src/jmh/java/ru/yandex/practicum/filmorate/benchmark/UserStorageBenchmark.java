@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.FriendGraph;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.user.daoImpl.FriendListDaoImpl;
+import ru.yandex.practicum.filmorate.storage.user.storageImpl.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.storageImpl.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserStorageBenchmark {
+
+    @Param("1000")
+    private int users;
+
+    @Param("20000")
+    private int friendships;
+
+    private BenchmarkDatabase database;
+    private UserDbStorage userDbStorage;
+    private FriendListDaoImpl friendListDao;
+    private InMemoryUserStorage inMemoryUserStorage;
+    private UserService userService;
+    private int newcomerId;
+    private int otherNewcomerId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(users, 1, 0, friendships);
+        JdbcTemplate jdbcTemplate = database.getJdbcTemplate();
+        userDbStorage = new UserDbStorage(jdbcTemplate);
+        friendListDao = new FriendListDaoImpl(jdbcTemplate);
+        userService = new UserService(userDbStorage, friendListDao, new FriendGraph(), new EntityVersions());
+        userService.loadFriendGraph();
+
+        // два пользователя без друзей для замера добавления и удаления дружбы
+        newcomerId = userDbStorage.createUser(new User("newcomer1@bench.ru", "newcomer1", "Newcomer1",
+                LocalDate.of(1990, 1, 1))).getId();
+        otherNewcomerId = userDbStorage.createUser(new User("newcomer2@bench.ru", "newcomer2", "Newcomer2",
+                LocalDate.of(1990, 1, 1))).getId();
+
+        inMemoryUserStorage = new InMemoryUserStorage();
+        for (int userId = 1; userId <= users; userId++) {
+            inMemoryUserStorage.createUser(new User("user" + userId + "@bench.ru", "user" + userId,
+                    "User " + userId, LocalDate.of(1990, 1, 1)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public Collection<User> dbFindAll() {
+        return userDbStorage.findAll();
+    }
+
+    @Benchmark
+    public User dbFindUserById() {
+        return userDbStorage.findUserById(randomUserId());
+    }
+
+    @Benchmark
+    public Collection<User> friendsGetAll() {
+        return friendListDao.getAll(randomUserId());
+    }
+
+    @Benchmark
+    public Collection<User> friendsGetCommonFriends() {
+        return friendListDao.getCommonFriends(randomUserId(), randomUserId());
+    }
+
+    @Benchmark
+    public void friendsAddAndDeleteFriend() {
+        friendListDao.addFriend(newcomerId, otherNewcomerId);
+        friendListDao.deleteFriend(newcomerId, otherNewcomerId);
+    }
+
+    @Benchmark
+    public Collection<User> graphGetFriendList() {
+        return userService.getFriendList(randomUserId());
+    }
+
+    @Benchmark
+    public Collection<User> graphGetCommonFriends() {
+        return userService.getCommonFriends(randomUserId(), randomUserId());
+    }
+
+    @Benchmark
+    public Collection<User> inMemoryFindAll() {
+        return inMemoryUserStorage.findAll();
+    }
+
+    @Benchmark
+    public User inMemoryFindUserById() {
+        return inMemoryUserStorage.findUserById(randomUserId());
+    }
+
+    private int randomUserId() {
+        return 1 + ThreadLocalRandom.current().nextInt(users);
+    }
+}
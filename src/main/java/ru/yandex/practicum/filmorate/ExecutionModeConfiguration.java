@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Режим выполнения запросов (свойство filmorate.execution.mode).
+ * platform — обычный пул потоков Tomcat (server.tomcat.threads.max), каждый запрос занимает поток,
+ * пока ждет JdbcTemplate. virtual — на каждый запрос создается виртуальный поток, ожидание соединения
+ * и базы не занимает поток ОС, а число одновременных запросов ограничено только server.tomcat.max-connections
+ * и пулом соединений. Виртуальные потоки есть начиная с Java 21 (сборка профилем java21); исполнитель
+ * создается через отражение, чтобы основная сборка оставалась на Java 11.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "filmorate.execution.mode", havingValue = "virtual")
+public class ExecutionModeConfiguration {
+
+    static final String THREAD_NAME_PREFIX = "http-virtual-";
+
+    // исполнитель не объявляется бином: бин типа Executor отключил бы applicationTaskExecutor Spring Boot,
+    // на котором выполняются асинхронные ответы (StreamingResponseBody)
+    @Bean
+    public VirtualThreadProtocolHandlerCustomizer virtualThreadProtocolHandlerCustomizer() {
+        return new VirtualThreadProtocolHandlerCustomizer();
+    }
+
+    /**
+     * Создает исполнитель при настройке Tomcat и останавливает его вместе с контекстом, уже после остановки сервера.
+     */
+    static class VirtualThreadProtocolHandlerCustomizer
+            implements TomcatProtocolHandlerCustomizer<ProtocolHandler>, DisposableBean {
+
+        private ExecutorService executor;
+
+        @Override
+        public synchronized void customize(ProtocolHandler protocolHandler) {
+            if (executor == null) {
+                executor = newVirtualThreadExecutor(THREAD_NAME_PREFIX);
+            }
+            protocolHandler.setExecutor(executor);
+            log.info("Запросы выполняются в виртуальных потоках");
+        }
+
+        @Override
+        public synchronized void destroy() throws InterruptedException {
+            if (executor == null) {
+                return;
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Запросы в виртуальных потоках не завершились за 30 секунд");
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    // Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory())
+    static ExecutorService newVirtualThreadExecutor(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory threadFactory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, threadFactory);
+        } catch (NoSuchMethodException | ClassNotFoundException e) {
+            throw new IllegalStateException("Режим filmorate.execution.mode=virtual требует Java 21, запущена Java "
+                    + Runtime.version().feature(), e);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Не удалось создать исполнитель на виртуальных потоках", e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.exception.CacheNotFoundException;
+import ru.yandex.practicum.filmorate.storage.cache.CacheStats;
+import ru.yandex.practicum.filmorate.storage.cache.ManagedCache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@Slf4j
+@RequestMapping("/cache")
+public class CacheController {
+
+    private final List<ManagedCache> caches;
+
+    @Autowired
+    public CacheController(List<ManagedCache> caches) {
+        this.caches = caches;
+    }
+
+    @GetMapping // статистика попаданий и промахов всех кэшей
+    public Collection<CacheStats> getStats() {
+        return caches.stream()
+                .map(ManagedCache::getStats)
+                .collect(Collectors.toList());
+    }
+
+    @DeleteMapping("/{name}") // сброс кэша по имени
+    public void invalidate(@PathVariable String name) {
+        ManagedCache cache = caches.stream()
+                .filter(managedCache -> managedCache.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new CacheNotFoundException("Кэш " + name + " не найден"));
+        cache.invalidateAll();
+        log.info("Кэш {} сброшен", name);
+    }
+}
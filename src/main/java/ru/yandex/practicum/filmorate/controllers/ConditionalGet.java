@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * GET-метод контроллера, ответ которого помечается ETag по версии из {@link EntityVersions}.
+ * Запрос с совпадающим If-None-Match получает 304 без вызова метода, см. {@link ConditionalGetInterceptor}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConditionalGet {
+
+    EntityVersions.Resource value();
+
+    // переменная пути с идентификатором фильма или пользователя
+    String idVariable() default "id";
+}
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+
+/**
+ * Условные GET-запросы для методов с {@link ConditionalGet}.
+ * До вызова контроллера ETag вычисляется по версии из {@link EntityVersions}; если он совпал с If-None-Match,
+ * сразу отдается 304 — без сервиса, базы и сериализации. Иначе ETag добавляется к успешному ответу
+ * (ответы обработчиков ошибок его не получают). Версия читается до запроса данных, поэтому при
+ * параллельной записи ответ может оказаться новее ETag, но не наоборот.
+ */
+@ControllerAdvice
+public class ConditionalGetInterceptor implements HandlerInterceptor, ResponseBodyAdvice<Object> {
+
+    private static final String ETAG_ATTRIBUTE = ConditionalGetInterceptor.class.getName() + ".etag";
+
+    private final EntityVersions entityVersions;
+
+    public ConditionalGetInterceptor(EntityVersions entityVersions) {
+        this.entityVersions = entityVersions;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod) || !HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        ConditionalGet conditionalGet = ((HandlerMethod) handler).getMethodAnnotation(ConditionalGet.class);
+        if (conditionalGet == null) {
+            return true;
+        }
+        int id = 0;
+        EntityVersions.Resource resource = conditionalGet.value();
+        if (resource == EntityVersions.Resource.FILM || resource == EntityVersions.Resource.USER) {
+            @SuppressWarnings("unchecked")
+            Map<String, String> pathVariables =
+                    (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+            try {
+                id = Integer.parseInt(pathVariables.get(conditionalGet.idVariable()));
+            } catch (NumberFormatException e) {
+                // некорректный идентификатор отклонит сам контроллер
+                return true;
+            }
+        }
+        String etag = entityVersions.etag(resource, id);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            return false;
+        }
+        request.setAttribute(ETAG_ATTRIBUTE, etag);
+        return true;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return returnType.hasMethodAnnotation(ConditionalGet.class);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest) {
+            Object etag = ((ServletServerHttpRequest) request).getServletRequest().getAttribute(ETAG_ATTRIBUTE);
+            if (etag != null) {
+                response.getHeaders().setETag((String) etag);
+            }
+        }
+        return body;
+    }
+
+    // If-None-Match сравнивается слабо: W/"x" совпадает с "x"
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag) || candidate.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
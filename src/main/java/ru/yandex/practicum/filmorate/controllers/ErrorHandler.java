@@ -55,5 +55,19 @@ public class ErrorHandler {
         return new ErrorResponse("Жанр не найден: " + e.getMessage());
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public ErrorResponse handleCacheNotFoundException(final CacheNotFoundException e) {
+        log.info("Cache not found error: {}", e.getMessage());
+        return new ErrorResponse("Кэш не найден: " + e.getMessage());
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleServiceOverloadedException(final ServiceOverloadedException e) {
+        log.warn("Service overloaded: {}", e.getMessage());
+        return new ErrorResponse("Сервис перегружен: " + e.getMessage());
+    }
+
 }
 
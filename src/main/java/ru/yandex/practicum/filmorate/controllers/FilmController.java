@@ -1,30 +1,62 @@
 package ru.yandex.practicum.filmorate.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.PageRequests;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import javax.validation.Valid;
 import java.util.Collection;
+import java.util.function.Supplier;
 
 @RestController
 @Slf4j
 @RequestMapping("/films")
 public class FilmController {
+    private static final String FULL = "full";
+    private static final String SUMMARY = "summary";
+    // большие подборки запрашивают редко, а каждое значение count занимало бы в кэше свой ключ
+    private static final int MAX_CACHED_POPULAR_COUNT = 100;
+
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final SerializedResponseCache responseCache;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper, SerializedResponseCache responseCache) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
     }
 
     @GetMapping
+    @ConditionalGet(EntityVersions.Resource.CATALOG)
     public Collection<Film> findAll() {
         return filmService.getAllFilms();
     }
 
+    @GetMapping(params = "limit") // постраничная выдача по ключу
+    @ConditionalGet(EntityVersions.Resource.CATALOG)
+    public Collection<Film> findPage(@RequestParam(defaultValue = "0") Integer afterId,
+                                       @RequestParam Integer limit) {
+        log.debug("Получен запрос на вывод {} записей после id {}", limit, afterId);
+        return filmService.getFilmsPage(afterId, limit);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE) // потоковая выдача всех записей
+    public StreamingResponseBody streamAll() {
+        return JsonArrayStreams.keysetStream(objectMapper, PageRequests.STREAM_PAGE_SIZE,
+                filmService::getFilmsPage, Film::getId);
+    }
+
     @PostMapping
     public Film createFilm(@Valid @RequestBody Film film) {
         filmService.createFilm(film);
@@ -40,8 +72,9 @@ public class FilmController {
     }
 
     @GetMapping("/{id}") // получение фильма по айди
-    public Film findFilm(@PathVariable("id") Integer id) {
-        return filmService.findFilmById(id);
+    @ConditionalGet(EntityVersions.Resource.FILM)
+    public Film findFilm(@PathVariable("id") Integer id, @RequestParam(defaultValue = FULL) String fields) {
+        return isSummary(fields) ? filmService.findFilmSummaryById(id) : filmService.findFilmById(id);
     }
 
     @PutMapping("/{id}/like/{userId}") //  пользователь ставит лайк фильму.
@@ -58,9 +91,42 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public Collection<Film> getPopularFilms(
-            @RequestParam(value = "count", defaultValue = "10", required = false) Integer count) {
-        log.debug("Получен запрос на вывод {} популярных фильмов", count);
-        return filmService.getPopularFilms(count);
+    @ConditionalGet(EntityVersions.Resource.CATALOG)
+    public ResponseEntity<byte[]> getPopularFilms(
+            @RequestParam(value = "count", defaultValue = "10", required = false) Integer count,
+            @RequestParam(required = false) Integer genreId,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(defaultValue = FULL) String fields) {
+        log.debug("Получен запрос на вывод {} популярных фильмов, жанр {}, год {}", count, genreId, year);
+        boolean summary = isSummary(fields);
+        Supplier<Collection<Film>> loader = () -> summary
+                ? filmService.getPopularFilmSummaries(count, genreId, year)
+                : filmService.getPopularFilms(count, genreId, year);
+        if (count == null || count < 1 || count > MAX_CACHED_POPULAR_COUNT) {
+            return responseCache.uncached(loader);
+        }
+        return responseCache.get("popular:" + count + ":" + genreId + ":" + year + ":" + fields,
+                EntityVersions.Resource.CATALOG, loader);
+    }
+
+    @GetMapping("/search") // полнотекстовый поиск по названию и описанию
+    public Collection<Film> searchFilms(@RequestParam String query,
+                                        @RequestParam(defaultValue = "title,description") String by,
+                                        @RequestParam(defaultValue = "10") Integer limit,
+                                        @RequestParam(defaultValue = FULL) String fields) {
+        log.debug("Получен запрос на поиск фильмов: {}, поля {}", query, by);
+        return isSummary(fields) ? filmService.searchFilmSummaries(query, by, limit)
+                : filmService.searchFilms(query, by, limit);
+    }
+
+    // fields=summary — фильмы с числом лайков (likeCount) вместо списка лайкнувших пользователей
+    private static boolean isSummary(String fields) {
+        if (SUMMARY.equals(fields)) {
+            return true;
+        }
+        if (!FULL.equals(fields)) {
+            throw new ValidationException("Параметр fields может принимать значения " + FULL + " или " + SUMMARY);
+        }
+        return false;
     }
 }
@@ -2,34 +2,38 @@ package ru.yandex.practicum.filmorate.controllers;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
-import java.util.Collection;
-
 @RestController
 @Slf4j
 @RequestMapping("/genres")
 public class GenreController {
 
     private final GenreService genreService;
+    private final SerializedResponseCache responseCache;
 
     @Autowired
-    public GenreController(GenreService genreService) {
+    public GenreController(GenreService genreService, SerializedResponseCache responseCache) {
         this.genreService = genreService;
+        this.responseCache = responseCache;
     }
 
     @GetMapping
-    public Collection<Genre> findAll() {
+    @ConditionalGet(EntityVersions.Resource.REFERENCE)
+    public ResponseEntity<byte[]> findAll() {
         log.info("Получен GET-запрос к эндпоинту: /genres");
-        return genreService.getAllGenres();
+        return responseCache.get("genres", EntityVersions.Resource.REFERENCE, genreService::getAllGenres);
     }
 
     @GetMapping("/{id}")
+    @ConditionalGet(EntityVersions.Resource.REFERENCE)
     public Genre findGenre(@PathVariable int id) {
         log.info("Получен GET-запрос к эндпоинту: /mpa/{}", id);
         return genreService.getGenreById(id);
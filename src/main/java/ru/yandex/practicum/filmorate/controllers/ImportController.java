@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.service.ImportService;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// пакетная загрузка: тело запроса в формате NDJSON, по одной записи на строку
+@RestController
+@Slf4j
+public class ImportController {
+
+    private final ImportService importService;
+
+    @Autowired
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    @PostMapping("/films/batch")
+    public ImportResult importFilms(InputStream body) throws IOException {
+        return logged("фильмов", importService.importFilms(body));
+    }
+
+    @PostMapping("/users/batch")
+    public ImportResult importUsers(InputStream body) throws IOException {
+        return logged("пользователей", importService.importUsers(body));
+    }
+
+    @PostMapping("/films/likes/batch")
+    public ImportResult importLikes(InputStream body) throws IOException {
+        return logged("лайков", importService.importLikes(body));
+    }
+
+    @PostMapping("/users/friends/batch")
+    public ImportResult importFriendships(InputStream body) throws IOException {
+        return logged("связей дружбы", importService.importFriendships(body));
+    }
+
+    private ImportResult logged(String records, ImportResult result) {
+        log.info("Загрузка {}: добавлено {}, пропущено {}, ошибок {}", records, result.getImported(),
+                result.getSkipped(), result.getFailed());
+        return result;
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Collection;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Потоковая выдача таблицы в виде JSON-массива.
+ * Записи читаются страницами по ключу и сразу пишутся в ответ, поэтому в памяти
+ * одновременно находится не больше одной страницы, а соединение с базой не удерживается
+ * на время записи в сокет.
+ */
+final class JsonArrayStreams {
+
+    private JsonArrayStreams() {
+    }
+
+    static <T> StreamingResponseBody keysetStream(ObjectMapper objectMapper, int pageSize,
+                                                  BiFunction<Integer, Integer, Collection<T>> pageLoader,
+                                                  Function<T, Integer> idExtractor) {
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                int afterId = 0;
+                Collection<T> page;
+                do {
+                    page = pageLoader.apply(afterId, pageSize);
+                    for (T item : page) {
+                        objectMapper.writeValue(generator, item);
+                        afterId = idExtractor.apply(item);
+                    }
+                    generator.flush();
+                } while (page.size() == pageSize);
+                generator.writeEndArray();
+            }
+        };
+    }
+}
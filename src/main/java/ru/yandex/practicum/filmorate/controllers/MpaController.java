@@ -2,33 +2,37 @@ package ru.yandex.practicum.filmorate.controllers;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
 import ru.yandex.practicum.filmorate.service.MpaService;
 
-import java.util.Collection;
-
 @RestController
 @Slf4j
 @RequestMapping("/mpa")
 public class MpaController {
     private final MpaService mpaService;
+    private final SerializedResponseCache responseCache;
 
     @Autowired
-    public MpaController(MpaService mpaService) {
+    public MpaController(MpaService mpaService, SerializedResponseCache responseCache) {
         this.mpaService = mpaService;
+        this.responseCache = responseCache;
     }
 
     @GetMapping
-    public Collection<Mpa> findAll() {
+    @ConditionalGet(EntityVersions.Resource.REFERENCE)
+    public ResponseEntity<byte[]> findAll() {
         log.info("Получен GET-запрос к эндпоинту: /mpa");
-        return mpaService.getAllMpa();
+        return responseCache.get("mpa", EntityVersions.Resource.REFERENCE, mpaService::getAllMpa);
     }
 
     @GetMapping("/{id}")
+    @ConditionalGet(EntityVersions.Resource.REFERENCE)
     public Mpa findRating(@PathVariable int id) {
         log.info("Получен GET-запрос к эндпоинту: /mpa/{}", id);
         return mpaService.getMpa(id);
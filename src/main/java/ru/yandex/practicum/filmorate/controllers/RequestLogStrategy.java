@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.Strategy;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Стратегия журнала запросов Logbook.
+ * Ответы с ошибкой (статус не ниже error-status) пишутся всегда, вместе с телами запроса и ответа;
+ * успешные — только с вероятностью sample-rate и без тел.
+ * GET-запросы к путям из exclude-reads в журнал попадают только при ошибке. Статус до обработки запроса
+ * неизвестен, поэтому их тела тоже буферизуются и отбрасываются в write, если ответ успешный.
+ * Длина тел ограничивается свойством logbook.write.max-body-size.
+ */
+@Component
+public class RequestLogStrategy implements Strategy {
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final double sampleRate;
+    private final int errorStatus;
+    private final List<String> excludedReads;
+
+    public RequestLogStrategy(@Value("${filmorate.request-log.sample-rate:0.01}") double sampleRate,
+                              @Value("${filmorate.request-log.error-status:400}") int errorStatus,
+                              @Value("${filmorate.request-log.exclude-reads:}") List<String> excludedReads) {
+        this.sampleRate = sampleRate;
+        this.errorStatus = errorStatus;
+        this.excludedReads = excludedReads;
+    }
+
+    @Override
+    public HttpRequest process(HttpRequest request) throws IOException {
+        return request.withBody();
+    }
+
+    // запрос пишется вместе с ответом, когда уже известен статус
+    @Override
+    public void write(Precorrelation precorrelation, HttpRequest request, Sink sink) {
+    }
+
+    // тело нужно и исключенным чтениям: ошибку по ним пишем вместе с телом ответа
+    @Override
+    public HttpResponse process(HttpRequest request, HttpResponse response) throws IOException {
+        return response.withBody();
+    }
+
+    @Override
+    public void write(Correlation correlation, HttpRequest request, HttpResponse response, Sink sink)
+            throws IOException {
+        if (response.getStatus() >= errorStatus) {
+            sink.writeBoth(correlation, request, response);
+        } else if (!isExcludedRead(request) && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            sink.writeBoth(correlation, request.withoutBody(), response.withoutBody());
+        }
+    }
+
+    private boolean isExcludedRead(HttpRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return false;
+        }
+        String path = request.getPath();
+        for (String pattern : excludedReads) {
+            if (pathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
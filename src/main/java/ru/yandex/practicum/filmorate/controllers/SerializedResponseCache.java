@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.storage.cache.CacheStats;
+import ru.yandex.practicum.filmorate.storage.cache.ManagedCache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Кэш готовых JSON-ответов в UTF-8 для частых списков: популярных фильмов, жанров и рейтингов.
+ * Запись помечена версией из {@link EntityVersions}, взятой до чтения данных, и действует, пока версия
+ * не изменилась; FilmService увеличивает версию каталога при каждом изменении фильмов и лайков, так что
+ * устаревший ответ не отдается. Попадание пишет массив байтов в ответ без Jackson.
+ * Ответы больше max-body-bytes не кэшируются. Когда набралось max-entries ключей, из кэша удаляются
+ * записи устаревших версий; если места все равно нет, новый ключ не кэшируется, а прежние остаются.
+ */
+@Component
+public class SerializedResponseCache implements ManagedCache {
+
+    private final ObjectMapper objectMapper;
+    private final EntityVersions entityVersions;
+    private final int maxEntries;
+    private final int maxBodyBytes;
+    private final ConcurrentMap<String, CachedResponse> responses = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public SerializedResponseCache(ObjectMapper objectMapper, EntityVersions entityVersions,
+                                   @Value("${filmorate.cache.responses.max-entries:256}") int maxEntries,
+                                   @Value("${filmorate.cache.responses.max-body-bytes:1048576}") int maxBodyBytes) {
+        this.objectMapper = objectMapper;
+        this.entityVersions = entityVersions;
+        this.maxEntries = maxEntries;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    // resource — версия, от которой зависит ответ: CATALOG для фильмов, REFERENCE для справочников
+    public ResponseEntity<byte[]> get(String key, EntityVersions.Resource resource, Supplier<?> loader) {
+        long version = entityVersions.getVersion(resource, 0);
+        CachedResponse cached = responses.get(key);
+        byte[] body;
+        if (cached != null && cached.version == version) {
+            hits.increment();
+            body = cached.body;
+        } else {
+            misses.increment();
+            body = serialize(loader.get());
+            if (body.length <= maxBodyBytes && (cached != null || hasRoom())) {
+                // параллельный запрос мог уже положить ответ более новой версии
+                responses.merge(key, new CachedResponse(resource, version, body),
+                        (current, loaded) -> current.version > loaded.version ? current : loaded);
+            }
+        }
+        return json(body);
+    }
+
+    // для запросов с редкими параметрами, которые не стоит держать в кэше
+    public ResponseEntity<byte[]> uncached(Supplier<?> loader) {
+        return json(serialize(loader.get()));
+    }
+
+    @Override
+    public String getName() {
+        return "responses";
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return new CacheStats(getName(), hits.sum(), misses.sum(), evictions.sum(), responses.size());
+    }
+
+    @Override
+    public void invalidateAll() {
+        responses.clear();
+    }
+
+    private boolean hasRoom() {
+        if (responses.size() < maxEntries) {
+            return true;
+        }
+        responses.entrySet().removeIf(entry -> {
+            CachedResponse cached = entry.getValue();
+            if (cached.version == entityVersions.getVersion(cached.resource, 0)) {
+                return false;
+            }
+            evictions.increment();
+            return true;
+        });
+        return responses.size() < maxEntries;
+    }
+
+    private static ResponseEntity<byte[]> json(byte[] body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать ответ", e);
+        }
+    }
+
+    private static final class CachedResponse {
+        private final EntityVersions.Resource resource;
+        private final long version;
+        private final byte[] body;
+
+        private CachedResponse(EntityVersions.Resource resource, long version, byte[] body) {
+            this.resource = resource;
+            this.version = version;
+            this.body = body;
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package ru.yandex.practicum.filmorate.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionService;
+import ru.yandex.practicum.filmorate.service.PageRequests;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
@@ -14,10 +22,17 @@ import java.util.Collection;
 @RequestMapping("/users")
 public class UserController {
     private final UserService userService;
+    private final FriendSuggestionService friendSuggestionService;
+    private final RecommendationService recommendationService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FriendSuggestionService friendSuggestionService,
+                          RecommendationService recommendationService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.friendSuggestionService = friendSuggestionService;
+        this.recommendationService = recommendationService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
@@ -25,6 +40,19 @@ public class UserController {
         return userService.getAllUsers();
     }
 
+    @GetMapping(params = "limit") // постраничная выдача по ключу
+    public Collection<User> findPage(@RequestParam(defaultValue = "0") Integer afterId,
+                                       @RequestParam Integer limit) {
+        log.debug("Получен запрос на вывод {} записей после id {}", limit, afterId);
+        return userService.getUsersPage(afterId, limit);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE) // потоковая выдача всех записей
+    public StreamingResponseBody streamAll() {
+        return JsonArrayStreams.keysetStream(objectMapper, PageRequests.STREAM_PAGE_SIZE,
+                userService::getUsersPage, User::getId);
+    }
+
     @PostMapping
     public User createUser(@Valid @RequestBody User user) {
         userService.createUser(user);
@@ -40,6 +68,7 @@ public class UserController {
     }
 
     @GetMapping("/{id}") // получение пользователя по айди
+    @ConditionalGet(EntityVersions.Resource.USER)
     public User findUser(@PathVariable("id") Integer id) {
         log.debug("Получен GET-запрос к эндпоинту: /users/{}", id);
         return userService.findUserById(id);
@@ -68,4 +97,18 @@ public class UserController {
         log.debug("Получен GET-запрос на вывод общих друзей пользователей id {} и id {}", id, otherId);
         return userService.getCommonFriends(id, otherId);
     }
+
+    @GetMapping("/{id}/friends/suggestions") // рекомендации друзей по числу общих друзей
+    public Collection<User> getFriendSuggestions(@PathVariable Integer id,
+                                                 @RequestParam(defaultValue = "10") Integer limit) {
+        log.debug("Получен GET-запрос на вывод {} рекомендаций друзей для пользователя с id {}", limit, id);
+        return friendSuggestionService.getSuggestions(id, limit);
+    }
+
+    @GetMapping("/{id}/recommendations") // рекомендации фильмов по лайкам похожих пользователей
+    public Collection<Film> getRecommendations(@PathVariable Integer id,
+                                               @RequestParam(defaultValue = "10") Integer limit) {
+        log.debug("Получен GET-запрос на вывод {} рекомендованных фильмов для пользователя с id {}", limit, id);
+        return recommendationService.getRecommendations(id, limit);
+    }
 }
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.exception;
+
+public class CacheNotFoundException extends RuntimeException {
+
+    public CacheNotFoundException(String message) {
+        super(message);
+    }
+}
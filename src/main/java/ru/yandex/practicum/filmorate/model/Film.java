@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.model;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -8,13 +9,14 @@ import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.Size;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Set;
 
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 
 public class Film {
     private Integer id;
@@ -28,10 +30,27 @@ public class Film {
 
     private Mpa mpa;
 
+    // в краткой выдаче (?fields=summary) лайки не загружаются, вместо них заполняется likeCount
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Set<Integer> likes;
 
     private Collection<Genre> genres;
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Integer likeCount;
+
+    public Film(Integer id, String name, String description, LocalDate releaseDate, int duration, Mpa mpa,
+                Set<Integer> likes, Collection<Genre> genres) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.releaseDate = releaseDate;
+        this.duration = duration;
+        this.mpa = mpa;
+        this.likes = likes;
+        this.genres = genres;
+    }
 
     public Film(String name, String description, LocalDate releaseDate, int duration) {
         this.name = name;
@@ -47,4 +66,18 @@ public class Film {
         this.releaseDate = releaseDate;
         this.duration = duration;
     }
+
+    // независимая копия: лайки и жанры копируются, чтобы изменения копии не затронули оригинал
+    public Film copy() {
+        Film copy = new Film(id, name, description, releaseDate, duration, mpa,
+                likes == null ? null : new HashSet<>(likes), genres == null ? null : new ArrayList<>(genres));
+        copy.setLikeCount(likeCount);
+        return copy;
+    }
+
+    // копия для краткой выдачи: без лайков, жанры копируются, чтобы не делить список с кэшем
+    public Film withoutLikes() {
+        return new Film(id, name, description, releaseDate, duration, mpa, null,
+                genres == null ? null : new ArrayList<>(genres));
+    }
 }
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// итог пакетной загрузки: ошибки перечисляются по номерам строк тела запроса
+@Data
+public class ImportResult {
+
+    private int imported;
+
+    private int skipped;
+
+    private int failed;
+
+    private List<ImportError> errors = new ArrayList<>();
+
+}
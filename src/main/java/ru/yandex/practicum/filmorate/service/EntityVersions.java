@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Версии данных для ETag и условных GET-запросов.
+ * У фильмов и пользователей версии хранятся в ячейках по остатку от идентификатора: записи из одной ячейки
+ * делят счетчик, и изменение одной из них лишь заставит клиента другой заново получить неизменный ответ.
+ * Версия каталога растет при любом изменении фильмов и лайков и относится к спискам фильмов.
+ * Справочники жанров и рейтингов не меняются во время работы. Счетчики живут в памяти, поэтому в ETag
+ * входит время запуска: после перезапуска старые ETag не совпадут.
+ * Версию нужно увеличивать после записи в базу и сброса кэшей: тогда ответ может оказаться новее своего ETag,
+ * но не старее. Поэтому при отложенной записи лайков версия растет еще раз после сброса очереди.
+ */
+@Component
+public class EntityVersions {
+
+    public enum Resource {
+        FILM("f"),
+        USER("u"),
+        CATALOG("c"),
+        REFERENCE("r");
+
+        private final String tag;
+
+        Resource(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final int SLOTS = 1 << 14;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicLongArray filmVersions = new AtomicLongArray(SLOTS);
+    private final AtomicLongArray userVersions = new AtomicLongArray(SLOTS);
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    public void filmChanged(int filmId) {
+        filmVersions.incrementAndGet(slot(filmId));
+        catalogVersion.incrementAndGet();
+    }
+
+    public void userChanged(int userId) {
+        userVersions.incrementAndGet(slot(userId));
+    }
+
+    // id нужен только для FILM и USER
+    public long getVersion(Resource resource, int id) {
+        switch (resource) {
+            case FILM:
+                return filmVersions.get(slot(id));
+            case USER:
+                return userVersions.get(slot(id));
+            case CATALOG:
+                return catalogVersion.get();
+            default:
+                return 0;
+        }
+    }
+
+    // сильный ETag в кавычках, например "lq3x9k-f12-5"
+    public String etag(Resource resource, int id) {
+        StringBuilder etag = new StringBuilder("\"").append(epoch).append('-').append(resource.tag);
+        if (resource == Resource.FILM || resource == Resource.USER) {
+            etag.append(id);
+        }
+        return etag.append('-').append(getVersion(resource, id)).append('"').toString();
+    }
+
+    private static int slot(int id) {
+        return id & (SLOTS - 1);
+    }
+}
@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Инвертированный индекс для полнотекстового поиска по названию и описанию фильмов.
+ * Для каждого поля хранится отсортированный словарь токен → (id фильма → частота токена),
+ * поэтому префиксный запрос — это диапазон словаря. Токены приводятся к нижнему регистру
+ * по правилам русского языка, «ё» заменяется на «е».
+ */
+@Component
+public class FilmSearchIndex {
+
+    public enum Field {
+        TITLE(2.0),
+        DESCRIPTION(1.0);
+
+        private final double weight;
+
+        Field(double weight) {
+            this.weight = weight;
+        }
+    }
+
+    // совпадение по префиксу весит меньше точного совпадения токена
+    private static final double PREFIX_MATCH_WEIGHT = 0.5;
+    // ограничение числа токенов, в которые раскрывается один короткий префикс
+    private static final int MAX_PREFIX_EXPANSIONS = 1000;
+    private static final Locale RUSSIAN = new Locale("ru");
+
+    private final Map<Field, ConcurrentSkipListMap<String, ConcurrentMap<Integer, Integer>>> postings = Map.of(
+            Field.TITLE, new ConcurrentSkipListMap<>(),
+            Field.DESCRIPTION, new ConcurrentSkipListMap<>());
+    // токены, под которыми фильм сейчас проиндексирован, нужны для удаления при обновлении
+    private final ConcurrentMap<Integer, Map<Field, Map<String, Integer>>> documents = new ConcurrentHashMap<>();
+
+    public void putFilm(Film film) {
+        Map<Field, Map<String, Integer>> newDocument = Map.of(
+                Field.TITLE, termFrequencies(film.getName()),
+                Field.DESCRIPTION, termFrequencies(film.getDescription()));
+        documents.compute(film.getId(), (filmId, oldDocument) -> {
+            if (oldDocument != null) {
+                oldDocument.forEach((field, terms) -> terms.keySet().forEach(term -> removePosting(field, term,
+                        filmId)));
+            }
+            newDocument.forEach((field, terms) -> terms.forEach((term, frequency) -> addPosting(field, term,
+                    filmId, frequency)));
+            return newDocument;
+        });
+    }
+
+    /**
+     * Возвращает id фильмов, содержащих все токены запроса (каждый как префикс), по убыванию
+     * релевантности с учетом лайков; при равенстве выше фильм с меньшим id.
+     */
+    public List<Integer> search(String query, Set<Field> fields, IntUnaryOperator likeCounts, int limit) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty() || documents.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Integer, Double> scores = null;
+        for (String queryTerm : queryTerms) {
+            Map<Integer, Double> termScores = scoreTerm(queryTerm, fields);
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                // фильм должен содержать все токены запроса
+                Map<Integer, Double> previous = scores;
+                termScores.keySet().retainAll(previous.keySet());
+                termScores.replaceAll((filmId, score) -> score + previous.get(filmId));
+                scores = termScores;
+            }
+            if (scores.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(scores.size());
+        scores.forEach((filmId, score) -> ranked.add(Map.entry(filmId,
+                score * (1 + Math.log1p(likeCounts.applyAsInt(filmId))))));
+        ranked.sort(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+        List<Integer> filmIds = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            filmIds.add(ranked.get(i).getKey());
+        }
+        return filmIds;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String normalized = text.toLowerCase(RUSSIAN).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean tokenChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // tf-idf по всем токенам словаря, начинающимся с queryTerm
+    private Map<Integer, Double> scoreTerm(String queryTerm, Set<Field> fields) {
+        Map<Integer, Double> scores = new HashMap<>();
+        int totalFilms = documents.size();
+        for (Field field : fields) {
+            ConcurrentNavigableMap<String, ConcurrentMap<Integer, Integer>> matches = postings.get(field)
+                    .subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false);
+            int expansions = 0;
+            for (Map.Entry<String, ConcurrentMap<Integer, Integer>> match : matches.entrySet()) {
+                if (expansions++ == MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                Map<Integer, Integer> filmFrequencies = match.getValue();
+                double idf = Math.log(1 + (double) totalFilms / Math.max(1, filmFrequencies.size()));
+                double weight = field.weight * idf * (match.getKey().equals(queryTerm) ? 1 : PREFIX_MATCH_WEIGHT);
+                filmFrequencies.forEach((filmId, frequency) -> scores.merge(filmId, weight * frequency, Double::sum));
+            }
+        }
+        return scores;
+    }
+
+    // через compute, а не computeIfAbsent: иначе запись могла бы попасть в список, который как раз удаляется
+    private void addPosting(Field field, String term, int filmId, int frequency) {
+        postings.get(field).compute(term, (t, filmFrequencies) -> {
+            ConcurrentMap<Integer, Integer> updated = filmFrequencies == null ? new ConcurrentHashMap<>()
+                    : filmFrequencies;
+            updated.put(filmId, frequency);
+            return updated;
+        });
+    }
+
+    private void removePosting(Field field, String term, int filmId) {
+        postings.get(field).computeIfPresent(term, (t, filmFrequencies) -> {
+            filmFrequencies.remove(filmId);
+            return filmFrequencies.isEmpty() ? null : filmFrequencies;
+        });
+    }
+
+    private static Map<String, Integer> termFrequencies(String text) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokenize(text)) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+}
@@ -2,52 +2,252 @@ package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.film.dao.LikesDao;
 
+import javax.annotation.PostConstruct;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 public class FilmService {
 
+    private static final int FIRST_RELEASE_YEAR = 1895;
+    private static final int MAX_RELEASE_YEAR = 9999;
+    // запись лайка в LikesDao и обновление индексов для одной пары фильм-пользователь выполняются под одной
+    // блокировкой, иначе параллельные лайк и его снятие могут оставить индексы не такими, как в базе
+    private static final int LIKE_LOCK_STRIPES = 64;
+
+    private final ReentrantLock[] likeLocks = new ReentrantLock[LIKE_LOCK_STRIPES];
+
     private final FilmStorage filmStorage;
 
     private final LikesDao likesDao;
 
+    private final PopularityIndex popularityIndex;
+
+    private final FilteredPopularityIndex filteredPopularityIndex;
+
+    private final RecommendationService recommendationService;
+
+    private final FilmSearchIndex filmSearchIndex;
+
+    private final EntityVersions entityVersions;
+
     @Autowired
-    public FilmService(FilmStorage filmStorage, LikesDao likesDao) {
+    public FilmService(FilmStorage filmStorage, LikesDao likesDao, PopularityIndex popularityIndex,
+                       FilteredPopularityIndex filteredPopularityIndex, RecommendationService recommendationService,
+                       FilmSearchIndex filmSearchIndex, EntityVersions entityVersions) {
         this.filmStorage = filmStorage;
         this.likesDao = likesDao;
+        this.popularityIndex = popularityIndex;
+        this.filteredPopularityIndex = filteredPopularityIndex;
+        this.recommendationService = recommendationService;
+        this.filmSearchIndex = filmSearchIndex;
+        this.entityVersions = entityVersions;
+        for (int i = 0; i < LIKE_LOCK_STRIPES; i++) {
+            likeLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void loadIndexes() {
+        popularityIndex.load(likesDao.getLikeCounts());
+        for (Film film : filmStorage.findAll()) {
+            filteredPopularityIndex.addFilm(film, popularityIndex.getLikeCount(film.getId()));
+            filmSearchIndex.putFilm(film);
+        }
     }
 
     public Collection<Film> getAllFilms() {
         return filmStorage.findAll();
     }
 
+    public Collection<Film> getFilmsPage(Integer afterId, Integer limit) {
+        PageRequests.validate(afterId, limit);
+        return filmStorage.findPage(afterId, limit);
+    }
+
     public Film createFilm(Film film) {
-        return filmStorage.createFilm(film);
+        Film createdFilm = filmStorage.createFilm(film);
+        indexNewFilm(createdFilm);
+        return createdFilm;
+    }
+
+    // пачка фильмов записывается в одной транзакции и только после этого попадает в индексы
+    public List<Film> createFilms(List<Film> films) {
+        List<Film> createdFilms = filmStorage.createFilms(films);
+        createdFilms.forEach(this::indexNewFilm);
+        return createdFilms;
     }
 
     public Film updateFilm(Film film) {
-        return filmStorage.updateFilm(film);
+        Film updatedFilm = filmStorage.updateFilm(film);
+        filteredPopularityIndex.updateFilm(updatedFilm);
+        filmSearchIndex.putFilm(updatedFilm);
+        entityVersions.filmChanged(updatedFilm.getId());
+        return updatedFilm;
     }
 
     public Film findFilmById(Integer filmId) {
         return filmStorage.findFilmById(filmId);
     }
 
+    // краткая выдача: вместо идентификаторов лайкнувших пользователей — число лайков из индекса популярности
+    public Film findFilmSummaryById(Integer filmId) {
+        Film film = filmStorage.findFilmSummaryById(filmId);
+        film.setLikeCount(popularityIndex.getLikeCount(filmId));
+        return film;
+    }
+
     public void addLike(Integer filmId, Integer userId) {
-        likesDao.addLikeToFilm(filmId, userId);
+        ReentrantLock lock = likeLock(filmId, userId);
+        lock.lock();
+        try {
+            likesDao.addLikeToFilm(filmId, userId);
+            indexNewLike(filmId, userId);
+            filmStorage.onLikeAdded(filmId, userId);
+            filmStorage.onFilmLikesChanged(filmId);
+            // после сброса кэша фильма, чтобы по новой версии не отдали старый фильм
+            entityVersions.filmChanged(filmId);
+        } finally {
+            lock.unlock();
+        }
+    }
 
+    // возвращает только добавленные лайки: уже существующие и ссылающиеся на несуществующие записи пропускаются
+    public List<Like> addLikes(List<Like> likes) {
+        // блокировки всех пар пакета берутся по возрастанию номера, чтобы пакеты не ждали друг друга по кругу
+        int[] stripes = likes.stream()
+                .mapToInt(like -> stripe(like.getFilmId(), like.getUserId()))
+                .distinct()
+                .sorted()
+                .toArray();
+        for (int stripe : stripes) {
+            likeLocks[stripe].lock();
+        }
+        try {
+            List<Like> addedLikes = likesDao.addLikes(likes);
+            for (Like like : addedLikes) {
+                indexNewLike(like.getFilmId(), like.getUserId());
+                filmStorage.onLikeAdded(like.getFilmId(), like.getUserId());
+            }
+            addedLikes.stream()
+                    .map(Like::getFilmId)
+                    .distinct()
+                    .forEach(filmId -> {
+                        filmStorage.onFilmLikesChanged(filmId);
+                        entityVersions.filmChanged(filmId);
+                    });
+            return addedLikes;
+        } finally {
+            for (int stripe : stripes) {
+                likeLocks[stripe].unlock();
+            }
+        }
     }
 
     public void deleteLike(Integer filmId, Integer userId) {
-        likesDao.deleteLikeFromFilm(filmId, userId);
+        ReentrantLock lock = likeLock(filmId, userId);
+        lock.lock();
+        try {
+            if (likesDao.deleteLikeFromFilm(filmId, userId)) {
+                popularityIndex.decrement(filmId);
+                filteredPopularityIndex.decrement(filmId);
+                recommendationService.onLikeDeleted(filmId, userId);
+                filmStorage.onLikeDeleted(filmId, userId);
+                filmStorage.onFilmLikesChanged(filmId);
+                entityVersions.filmChanged(filmId);
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public Collection<Film> getPopularFilms(Integer count) {
-        return filmStorage.findPopularFilms(count);
+    public Collection<Film> getPopularFilms(Integer count, Integer genreId, Integer year) {
+        return filmStorage.findFilmsByIds(findPopularFilmIds(count, genreId, year));
     }
-}
 
+    public Collection<Film> getPopularFilmSummaries(Integer count, Integer genreId, Integer year) {
+        return withLikeCounts(filmStorage.findFilmSummariesByIds(findPopularFilmIds(count, genreId, year)));
+    }
+
+    public Collection<Film> searchFilms(String query, String by, Integer limit) {
+        return filmStorage.findFilmsByIds(searchFilmIds(query, by, limit));
+    }
+
+    public Collection<Film> searchFilmSummaries(String query, String by, Integer limit) {
+        return withLikeCounts(filmStorage.findFilmSummariesByIds(searchFilmIds(query, by, limit)));
+    }
+
+    private List<Integer> findPopularFilmIds(Integer count, Integer genreId, Integer year) {
+        if (year != null && (year < FIRST_RELEASE_YEAR || year > MAX_RELEASE_YEAR)) {
+            throw new ValidationException("Параметр year должен быть от " + FIRST_RELEASE_YEAR + " до "
+                    + MAX_RELEASE_YEAR);
+        }
+        if (genreId == null && year == null) {
+            return popularityIndex.findTop(count);
+        }
+        return filteredPopularityIndex.findTop(count, genreId, year);
+    }
+
+    private List<Integer> searchFilmIds(String query, String by, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Поисковый запрос не может быть пустым!");
+        }
+        PageRequests.validateLimit(limit);
+        return filmSearchIndex.search(query, parseSearchFields(by), popularityIndex::getLikeCount, limit);
+    }
+
+    private Collection<Film> withLikeCounts(Collection<Film> films) {
+        for (Film film : films) {
+            film.setLikeCount(popularityIndex.getLikeCount(film.getId()));
+        }
+        return films;
+    }
+
+    private Set<FilmSearchIndex.Field> parseSearchFields(String by) {
+        Set<FilmSearchIndex.Field> fields = EnumSet.noneOf(FilmSearchIndex.Field.class);
+        for (String field : by.split(",")) {
+            switch (field.trim().toLowerCase()) {
+                case "title":
+                    fields.add(FilmSearchIndex.Field.TITLE);
+                    break;
+                case "description":
+                    fields.add(FilmSearchIndex.Field.DESCRIPTION);
+                    break;
+                default:
+                    throw new ValidationException("Параметр by может содержать только title и description");
+            }
+        }
+        return fields;
+    }
+
+    private void indexNewFilm(Film film) {
+        popularityIndex.addFilm(film.getId());
+        filteredPopularityIndex.addFilm(film, 0);
+        filmSearchIndex.putFilm(film);
+        entityVersions.filmChanged(film.getId());
+    }
+
+    private ReentrantLock likeLock(Integer filmId, Integer userId) {
+        return likeLocks[stripe(filmId, userId)];
+    }
+
+    private static int stripe(Integer filmId, Integer userId) {
+        return (31 * Objects.hashCode(filmId) + Objects.hashCode(userId)) & (LIKE_LOCK_STRIPES - 1);
+    }
+
+    private void indexNewLike(int filmId, int userId) {
+        popularityIndex.increment(filmId);
+        filteredPopularityIndex.increment(filmId);
+        recommendationService.onLikeAdded(filmId, userId);
+    }
+}
@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Рейтинги популярности отдельно по каждому жанру и каждому году выхода.
+ * Фильтрованный топ берется из рейтинга нужного жанра или года, а не отбором по всему каталогу;
+ * при фильтре по обоим признакам обходится меньший из двух рейтингов.
+ * Все изменения одного фильма выполняются под блокировкой его ячейки в {@link #attributes}.
+ */
+@Component
+public class FilteredPopularityIndex {
+
+    private final ConcurrentMap<Integer, PopularityIndex> byGenre = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, PopularityIndex> byYear = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, FilmAttributes> attributes = new ConcurrentHashMap<>();
+
+    public void addFilm(Film film, int likeCount) {
+        putFilm(film, likeCount);
+    }
+
+    // переносит фильм в рейтинги новых жанров и года, сохраняя накопленное число лайков
+    public void updateFilm(Film film) {
+        putFilm(film, null);
+    }
+
+    public void increment(int filmId) {
+        changeLikeCount(filmId, 1);
+    }
+
+    public void decrement(int filmId) {
+        changeLikeCount(filmId, -1);
+    }
+
+    public List<Integer> findTop(int count, Integer genreId, Integer year) {
+        PopularityIndex genreRanking = genreId == null ? null : byGenre.get(genreId);
+        PopularityIndex yearRanking = year == null ? null : byYear.get(year);
+        if ((genreId != null && genreRanking == null) || (year != null && yearRanking == null)) {
+            return Collections.emptyList();
+        }
+        if (genreRanking == null) {
+            return yearRanking.findTop(count);
+        }
+        if (yearRanking == null) {
+            return genreRanking.findTop(count);
+        }
+        if (genreRanking.size() <= yearRanking.size()) {
+            return genreRanking.findTop(count, filmId -> hasYear(filmId, year));
+        }
+        return yearRanking.findTop(count, filmId -> hasGenre(filmId, genreId));
+    }
+
+    private void putFilm(Film film, Integer likeCount) {
+        FilmAttributes newAttributes = FilmAttributes.of(film);
+        attributes.compute(film.getId(), (filmId, oldAttributes) -> {
+            if (oldAttributes != null) {
+                forEachRanking(oldAttributes, ranking -> ranking.remove(filmId));
+            }
+            if (likeCount != null) {
+                newAttributes.likeCount = likeCount;
+            } else if (oldAttributes != null) {
+                newAttributes.likeCount = oldAttributes.likeCount;
+            }
+            forEachRanking(newAttributes, ranking -> ranking.load(Map.of(filmId, newAttributes.likeCount)));
+            return newAttributes;
+        });
+    }
+
+    private void changeLikeCount(int filmId, int delta) {
+        attributes.computeIfPresent(filmId, (id, filmAttributes) -> {
+            filmAttributes.likeCount += delta;
+            forEachRanking(filmAttributes, ranking -> ranking.load(Map.of(id, filmAttributes.likeCount)));
+            return filmAttributes;
+        });
+    }
+
+    private boolean hasYear(int filmId, int year) {
+        FilmAttributes filmAttributes = attributes.get(filmId);
+        return filmAttributes != null && Objects.equals(filmAttributes.year, year);
+    }
+
+    private boolean hasGenre(int filmId, int genreId) {
+        FilmAttributes filmAttributes = attributes.get(filmId);
+        return filmAttributes != null && SortedIntArrays.contains(filmAttributes.genreIds, genreId);
+    }
+
+    private void forEachRanking(FilmAttributes filmAttributes, Consumer<PopularityIndex> action) {
+        for (int genreId : filmAttributes.genreIds) {
+            action.accept(byGenre.computeIfAbsent(genreId, id -> new PopularityIndex()));
+        }
+        if (filmAttributes.year != null) {
+            action.accept(byYear.computeIfAbsent(filmAttributes.year, id -> new PopularityIndex()));
+        }
+    }
+
+    private static final class FilmAttributes {
+        private final int[] genreIds;
+        private final Integer year;
+        // меняется только под блокировкой ячейки фильма
+        private int likeCount;
+
+        private FilmAttributes(int[] genreIds, Integer year) {
+            this.genreIds = genreIds;
+            this.year = year;
+        }
+
+        private static FilmAttributes of(Film film) {
+            int[] genreIds = film.getGenres() == null ? SortedIntArrays.EMPTY : film.getGenres().stream()
+                    .map(Genre::getId)
+                    .filter(Objects::nonNull)
+                    .mapToInt(Integer::intValue)
+                    .sorted()
+                    .distinct()
+                    .toArray();
+            Integer year = film.getReleaseDate() == null ? null : film.getReleaseDate().getYear();
+            return new FilmAttributes(genreIds, year);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Граф дружбы в памяти: для каждого пользователя хранится отсортированный массив идентификаторов друзей.
+ * Массив не меняется после публикации, изменения создают новую копию под блокировкой ячейки
+ * {@link ConcurrentHashMap}, поэтому чтение обходится без блокировок.
+ */
+@Component
+public class FriendGraph {
+
+    private final ConcurrentMap<Integer, int[]> friends = new ConcurrentHashMap<>();
+
+    public void load(Map<Integer, List<Integer>> friendIds) {
+        friendIds.forEach((userId, ids) -> friends.put(userId, SortedIntArrays.of(ids)));
+    }
+
+    public void addFriend(int userId, int friendId) {
+        friends.compute(userId, (id, ids) -> SortedIntArrays.insert(ids == null ? SortedIntArrays.EMPTY : ids,
+                friendId));
+    }
+
+    public void deleteFriend(int userId, int friendId) {
+        friends.computeIfPresent(userId, (id, ids) -> SortedIntArrays.remove(ids, friendId));
+    }
+
+    // возвращаемый массив нельзя изменять
+    public int[] getFriendIds(int userId) {
+        return friends.getOrDefault(userId, SortedIntArrays.EMPTY);
+    }
+
+    // слияние двух отсортированных массивов, результат тоже отсортирован
+    public int[] getCommonFriendIds(int userId, int otherId) {
+        return SortedIntArrays.intersection(getFriendIds(userId), getFriendIds(otherId));
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Рекомендации друзей: пользователи, не являющиеся друзьями, упорядоченные по числу общих друзей.
+ * Обход графа в два шага ограничен числом просматриваемых друзей и общим числом ребер,
+ * поэтому время ответа не растет без предела для пользователей с большим числом связей.
+ */
+@Service
+public class FriendSuggestionService {
+
+    private final FriendGraph friendGraph;
+    private final UserStorage userStorage;
+    private final int maxFriends;
+    private final int maxEdges;
+    private final DistributionSummary traversedEdges;
+    private final DistributionSummary candidates;
+    private final Counter truncated;
+
+    public FriendSuggestionService(FriendGraph friendGraph, UserStorage userStorage, MeterRegistry meterRegistry,
+                                   @Value("${filmorate.friends.suggestions.max-friends:1000}") int maxFriends,
+                                   @Value("${filmorate.friends.suggestions.max-edges:100000}") int maxEdges) {
+        this.friendGraph = friendGraph;
+        this.userStorage = userStorage;
+        this.maxFriends = maxFriends;
+        this.maxEdges = maxEdges;
+        this.traversedEdges = DistributionSummary.builder("filmorate.friends.suggestions.traversed.edges")
+                .description("Количество ребер графа дружбы, просмотренных при подборе рекомендаций")
+                .register(meterRegistry);
+        this.candidates = DistributionSummary.builder("filmorate.friends.suggestions.candidates")
+                .description("Количество кандидатов, найденных при подборе рекомендаций")
+                .register(meterRegistry);
+        this.truncated = Counter.builder("filmorate.friends.suggestions.truncated")
+                .description("Количество обходов, прерванных по ограничению max-friends или max-edges")
+                .register(meterRegistry);
+    }
+
+    public Collection<User> getSuggestions(Integer userId, Integer limit) {
+        PageRequests.validateLimit(limit);
+        userStorage.findUserById(userId);
+
+        int[] friends = friendGraph.getFriendIds(userId);
+        int visitedFriends = Math.min(friends.length, maxFriends);
+        IntCountMap mutualCounts = new IntCountMap(visitedFriends * 16);
+        int edges = 0;
+        boolean edgeLimitReached = false;
+        for (int i = 0; i < visitedFriends && !edgeLimitReached; i++) {
+            for (int candidateId : friendGraph.getFriendIds(friends[i])) {
+                if (edges == maxEdges) {
+                    edgeLimitReached = true;
+                    break;
+                }
+                edges++;
+                if (candidateId != userId && Arrays.binarySearch(friends, candidateId) < 0) {
+                    mutualCounts.increment(candidateId);
+                }
+            }
+        }
+        traversedEdges.record(edges);
+        candidates.record(mutualCounts.size());
+        if (edgeLimitReached || friends.length > maxFriends) {
+            truncated.increment();
+        }
+
+        List<Integer> topIds = findTop(mutualCounts, limit);
+        if (topIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return userStorage.findUsersByIds(topIds);
+    }
+
+    // куча на limit элементов: в вершине худший из отобранных кандидатов
+    private static List<Integer> findTop(IntCountMap mutualCounts, int limit) {
+        PriorityQueue<long[]> heap = new PriorityQueue<>(limit + 1, FriendSuggestionService::compareCandidates);
+        mutualCounts.forEach((candidateId, count) -> {
+            if (heap.size() < limit) {
+                heap.add(new long[]{candidateId, count});
+            } else if (compareCandidates(heap.peek(), new long[]{candidateId, count}) < 0) {
+                heap.poll();
+                heap.add(new long[]{candidateId, count});
+            }
+        });
+        List<Integer> topIds = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            topIds.add((int) heap.poll()[0]);
+        }
+        Collections.reverse(topIds);
+        return topIds;
+    }
+
+    // больше общих друзей — лучше; при равенстве лучше меньший id
+    private static int compareCandidates(long[] first, long[] second) {
+        int byCount = Long.compare(first[1], second[1]);
+        return byCount != 0 ? byCount : Long.compare(second[0], first[0]);
+    }
+}
@@ -0,0 +1,330 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.ImportError;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.dao.GenreDao;
+import ru.yandex.practicum.filmorate.storage.film.dao.LikesDao;
+import ru.yandex.practicum.filmorate.storage.film.dao.MpaDao;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Пакетная загрузка фильмов, пользователей, лайков и дружбы из NDJSON (один JSON-объект на строку).
+ * Тело читается построчно, корректные записи собираются в пачки по chunk-size и пишутся пакетными
+ * запросами, каждая пачка — в своей транзакции. Некорректная запись попадает в список ошибок
+ * с номером строки и не мешает остальным. Если пачка не записалась целиком (например, из-за
+ * повторяющегося email), ее записи повторяются по одной, чтобы отсеять только ошибочные.
+ */
+@Slf4j
+@Service
+public class ImportService {
+
+    private static final LocalDate FIRST_RELEASE_DATE = LocalDate.of(1895, 12, 28);
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final LikesDao likesDao;
+    private final UserStorage userStorage;
+    private final MpaDao mpaDao;
+    private final GenreDao genreDao;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    public ImportService(FilmService filmService, UserService userService, LikesDao likesDao,
+                         UserStorage userStorage, MpaDao mpaDao, GenreDao genreDao, Validator validator,
+                         ObjectMapper objectMapper,
+                         @Value("${filmorate.import.chunk-size:1000}") int chunkSize,
+                         @Value("${filmorate.import.max-errors:1000}") int maxErrors) {
+        this.filmService = filmService;
+        this.userService = userService;
+        this.likesDao = likesDao;
+        this.userStorage = userStorage;
+        this.mpaDao = mpaDao;
+        this.genreDao = genreDao;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    public ImportResult importFilms(InputStream body) throws IOException {
+        return importRecords(body, Film.class, this::validateFilm, chunk -> {
+            try {
+                filmService.createFilms(chunk.records);
+            } catch (DataAccessException e) {
+                log.warn("Пачка фильмов не записана, запись по одному: {}", e.getMessage());
+                chunk.writeOneByOne(filmService::createFilm);
+            }
+        });
+    }
+
+    public ImportResult importUsers(InputStream body) throws IOException {
+        return importRecords(body, User.class, this::validateUser, chunk -> {
+            try {
+                userService.createUsers(chunk.records);
+            } catch (DataAccessException e) {
+                log.warn("Пачка пользователей не записана, запись по одному: {}", e.getMessage());
+                chunk.writeOneByOne(userService::createUser);
+            }
+        });
+    }
+
+    public ImportResult importLikes(InputStream body) throws IOException {
+        return importRecords(body, Like.class, this::validateLike, chunk -> {
+            Set<Like> addedLikes = new HashSet<>(filmService.addLikes(chunk.records));
+            List<Like> notAdded = chunk.records.stream()
+                    .filter(like -> !addedLikes.contains(like))
+                    .collect(Collectors.toList());
+            if (notAdded.isEmpty()) {
+                return;
+            }
+            // лайк не вставлен: либо он уже был, либо нет фильма или пользователя
+            Map<Like, String> invalidLikes = likesDao.findInvalidLikes(notAdded);
+            for (int i = 0; i < chunk.records.size(); i++) {
+                Like like = chunk.records.get(i);
+                if (!addedLikes.remove(like)) {
+                    String error = invalidLikes.get(like);
+                    if (error == null) {
+                        chunk.skip();
+                    } else {
+                        chunk.fail(i, error);
+                    }
+                }
+            }
+        });
+    }
+
+    public ImportResult importFriendships(InputStream body) throws IOException {
+        return importRecords(body, Friendship.class, this::validateFriendship, chunk -> {
+            Set<Friendship> addedFriendships = new HashSet<>(userService.addFriends(chunk.records));
+            List<Integer> userIds = chunk.records.stream()
+                    .filter(friendship -> !addedFriendships.contains(friendship))
+                    .flatMap(friendship -> Stream.of(friendship.getUserId(), friendship.getFriendId()))
+                    .distinct()
+                    .collect(Collectors.toList());
+            if (userIds.isEmpty()) {
+                return;
+            }
+            // связь не вставлена: либо она уже была, либо нет одного из пользователей
+            Set<Integer> existingUserIds = userStorage.findUsersByIds(userIds).stream()
+                    .map(User::getId)
+                    .collect(Collectors.toSet());
+            for (int i = 0; i < chunk.records.size(); i++) {
+                Friendship friendship = chunk.records.get(i);
+                if (!addedFriendships.remove(friendship)) {
+                    Integer missingId = !existingUserIds.contains(friendship.getUserId()) ? friendship.getUserId()
+                            : !existingUserIds.contains(friendship.getFriendId()) ? friendship.getFriendId() : null;
+                    if (missingId == null) {
+                        chunk.skip();
+                    } else {
+                        chunk.fail(i, "Пользователь с идентификатором " + missingId + " не найден");
+                    }
+                }
+            }
+        });
+    }
+
+    private <T> ImportResult importRecords(InputStream body, Class<T> type, Function<T, String> recordValidator,
+                                           ChunkWriter<T> chunkWriter) throws IOException {
+        ImportResult result = new ImportResult();
+        ObjectReader reader = objectMapper.readerFor(type);
+        Chunk<T> chunk = new Chunk<>(result);
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            int lineNumber = 0;
+            String line;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                T record;
+                try {
+                    record = reader.readValue(line);
+                } catch (JsonProcessingException e) {
+                    addError(result, lineNumber, "некорректный JSON: " + e.getOriginalMessage());
+                    continue;
+                }
+                String error = recordValidator.apply(record);
+                if (error != null) {
+                    addError(result, lineNumber, error);
+                    continue;
+                }
+                chunk.add(record, lineNumber);
+                if (chunk.records.size() == chunkSize) {
+                    writeChunk(chunk, chunkWriter);
+                    chunk = new Chunk<>(result);
+                }
+            }
+        }
+        writeChunk(chunk, chunkWriter);
+        // ошибки разбора попадают в список сразу, а ошибки записи — после своей пачки
+        result.getErrors().sort(Comparator.comparingInt(ImportError::getLine));
+        return result;
+    }
+
+    private <T> void writeChunk(Chunk<T> chunk, ChunkWriter<T> chunkWriter) {
+        if (chunk.records.isEmpty()) {
+            return;
+        }
+        chunkWriter.write(chunk);
+        chunk.result.setImported(chunk.result.getImported() + chunk.records.size() - chunk.rejected);
+    }
+
+    private void addError(ImportResult result, int line, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxErrors) {
+            result.getErrors().add(new ImportError(line, message));
+        }
+    }
+
+    private String validateFilm(Film film) {
+        String violations = beanViolations(film);
+        if (violations != null) {
+            return violations;
+        }
+        if (film.getReleaseDate() == null) {
+            return "Дата релиза обязательна.";
+        }
+        if (film.getReleaseDate().isBefore(FIRST_RELEASE_DATE)) {
+            return "Дата релиза должна быть не раньше 28 декабря 1895 года.";
+        }
+        if (film.getMpa() == null) {
+            return "Рейтинг MPA обязателен.";
+        }
+        try {
+            film.setMpa(mpaDao.getMpaById(film.getMpa().getId()));
+            if (film.getGenres() != null) {
+                List<Genre> genres = new ArrayList<>(film.getGenres().size());
+                for (Genre genre : film.getGenres()) {
+                    if (genre == null) {
+                        return "У жанра должен быть указан id.";
+                    }
+                    genres.add(genreDao.getGenreById(genre.getId()));
+                }
+                film.setGenres(genres);
+            }
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+        // идентификаторы и лайки из файла не переносятся
+        film.setId(null);
+        film.setLikes(new HashSet<>());
+        return null;
+    }
+
+    private String validateUser(User user) {
+        String violations = beanViolations(user);
+        if (violations != null) {
+            return violations;
+        }
+        if (user.getBirthday() == null) {
+            return "Дата рождения обязательна.";
+        }
+        user.setId(null);
+        return null;
+    }
+
+    private String validateLike(Like like) {
+        if (like.getFilmId() <= 0 || like.getUserId() <= 0) {
+            return "filmId и userId должны быть положительными.";
+        }
+        return null;
+    }
+
+    private String validateFriendship(Friendship friendship) {
+        if (friendship.getUserId() <= 0 || friendship.getFriendId() <= 0) {
+            return "userId и friendId должны быть положительными.";
+        }
+        if (friendship.getUserId() == friendship.getFriendId()) {
+            return "Id пользователей не должны совпадать!";
+        }
+        return null;
+    }
+
+    private String beanViolations(Object record) {
+        Set<ConstraintViolation<Object>> violations = validator.validate(record);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private interface ChunkWriter<T> {
+        void write(Chunk<T> chunk);
+    }
+
+    // записи пачки вместе с номерами их строк в теле запроса
+    private final class Chunk<T> {
+        private final ImportResult result;
+        private final List<T> records = new ArrayList<>();
+        private final List<Integer> lines = new ArrayList<>();
+        private int rejected;
+
+        private Chunk(ImportResult result) {
+            this.result = result;
+        }
+
+        private void add(T record, int line) {
+            records.add(record);
+            lines.add(line);
+        }
+
+        private void fail(int index, String message) {
+            addError(result, lines.get(index), message);
+            rejected++;
+        }
+
+        // запись уже есть в базе
+        private void skip() {
+            result.setSkipped(result.getSkipped() + 1);
+            rejected++;
+        }
+
+        private void writeOneByOne(Function<T, ?> writer) {
+            for (int i = 0; i < records.size(); i++) {
+                try {
+                    writer.apply(records.get(i));
+                } catch (DuplicateKeyException e) {
+                    fail(i, "Запись с такими уникальными полями уже существует.");
+                } catch (RuntimeException e) {
+                    fail(i, e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.service;
+
+/**
+ * Счетчики (суммы) по положительным int-ключам с открытой адресацией, без упаковки в Integer.
+ * Ключ 0 обозначает пустую ячейку. Не потокобезопасен: рассчитан на один проход обхода.
+ */
+class IntCountMap {
+
+    private int[] keys;
+    private int[] counts;
+    private int size;
+
+    IntCountMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new int[capacity];
+        counts = new int[capacity];
+    }
+
+    void increment(int key) {
+        add(key, 1);
+    }
+
+    void add(int key, int delta) {
+        int index = indexOf(keys, key);
+        if (keys[index] == 0) {
+            keys[index] = key;
+            if (++size * 2 > keys.length) {
+                resize();
+                index = indexOf(keys, key);
+            }
+        }
+        counts[index] += delta;
+    }
+
+    int get(int key) {
+        int index = indexOf(keys, key);
+        return keys[index] == 0 ? 0 : counts[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                consumer.accept(keys[i], counts[i]);
+            }
+        }
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        counts = new int[oldCounts.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int index = indexOf(keys, oldKeys[i]);
+                keys[index] = oldKeys[i];
+                counts[index] = oldCounts[i];
+            }
+        }
+    }
+
+    // линейное пробирование; емкость всегда степень двойки
+    private static int indexOf(int[] keys, int key) {
+        int mask = keys.length - 1;
+        int hash = key * 0x9E3779B9;
+        int index = (hash ^ (hash >>> 16)) & mask;
+        while (keys[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    interface EntryConsumer {
+        void accept(int key, int count);
+    }
+}
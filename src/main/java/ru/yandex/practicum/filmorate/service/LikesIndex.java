@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Лайки в памяти в обе стороны: пользователь → понравившиеся фильмы и фильм → поставившие лайк пользователи.
+ * Наборы хранятся отсортированными массивами int без упаковки и заменяются копией при изменении,
+ * как в {@link FriendGraph}.
+ */
+@Component
+public class LikesIndex {
+
+    private final ConcurrentMap<Integer, int[]> filmsByUser = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, int[]> usersByFilm = new ConcurrentHashMap<>();
+
+    public void load(Map<Integer, List<Integer>> likedFilmIds) {
+        Map<Integer, List<Integer>> likerIds = new HashMap<>();
+        likedFilmIds.forEach((userId, filmIds) -> {
+            filmsByUser.put(userId, SortedIntArrays.of(filmIds));
+            filmIds.forEach(filmId -> likerIds.computeIfAbsent(filmId, id -> new ArrayList<>()).add(userId));
+        });
+        likerIds.forEach((filmId, userIds) -> usersByFilm.put(filmId, SortedIntArrays.of(userIds)));
+    }
+
+    public void addLike(int filmId, int userId) {
+        addTo(filmsByUser, userId, filmId);
+        addTo(usersByFilm, filmId, userId);
+    }
+
+    public void deleteLike(int filmId, int userId) {
+        filmsByUser.computeIfPresent(userId, (id, filmIds) -> SortedIntArrays.remove(filmIds, filmId));
+        usersByFilm.computeIfPresent(filmId, (id, userIds) -> SortedIntArrays.remove(userIds, userId));
+    }
+
+    // возвращаемый массив нельзя изменять
+    public int[] getLikedFilmIds(int userId) {
+        return filmsByUser.getOrDefault(userId, SortedIntArrays.EMPTY);
+    }
+
+    // возвращаемый массив нельзя изменять
+    public int[] getLikerIds(int filmId) {
+        return usersByFilm.getOrDefault(filmId, SortedIntArrays.EMPTY);
+    }
+
+    private static void addTo(ConcurrentMap<Integer, int[]> index, int key, int value) {
+        index.compute(key, (id, values) -> SortedIntArrays.insert(values == null ? SortedIntArrays.EMPTY : values,
+                value));
+    }
+}
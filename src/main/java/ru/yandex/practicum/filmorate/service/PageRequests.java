@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+/**
+ * Ограничения для постраничной выдачи по ключу (afterId + limit) и для других запросов с параметром limit.
+ */
+public final class PageRequests {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    // размер страницы при потоковой выдаче всей таблицы
+    public static final int STREAM_PAGE_SIZE = 256;
+
+    private PageRequests() {
+    }
+
+    public static void validate(Integer afterId, Integer limit) {
+        if (afterId == null || afterId < 0) {
+            throw new ValidationException("Параметр afterId не может быть отрицательным!");
+        }
+        validateLimit(limit);
+    }
+
+    public static void validateLimit(Integer limit) {
+        if (limit == null || limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.IntPredicate;
+
+/**
+ * Рейтинг фильмов по количеству лайков в памяти.
+ * Счетчик фильма меняется под блокировкой его ячейки в {@link ConcurrentHashMap},
+ * а упорядоченный skip list позволяет читать топ без общей блокировки.
+ */
+@Component
+public class PopularityIndex {
+
+    private final ConcurrentMap<Integer, Integer> likeCounts = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>();
+
+    public void load(Map<Integer, Integer> counts) {
+        counts.forEach(this::setLikeCount);
+    }
+
+    public void addFilm(int filmId) {
+        likeCounts.computeIfAbsent(filmId, id -> {
+            ranking.add(new Entry(id, 0));
+            return 0;
+        });
+    }
+
+    public void increment(int filmId) {
+        changeLikeCount(filmId, 1);
+    }
+
+    public void decrement(int filmId) {
+        changeLikeCount(filmId, -1);
+    }
+
+    public int getLikeCount(int filmId) {
+        return likeCounts.getOrDefault(filmId, 0);
+    }
+
+    public void remove(int filmId) {
+        likeCounts.computeIfPresent(filmId, (id, count) -> {
+            ranking.remove(new Entry(id, count));
+            return null;
+        });
+    }
+
+    public List<Integer> findTop(int count) {
+        return findTop(count, filmId -> true);
+    }
+
+    // обходит рейтинг сверху, пока не наберет count фильмов, прошедших фильтр
+    public List<Integer> findTop(int count, IntPredicate filter) {
+        List<Integer> filmIds = new ArrayList<>(count);
+        // при параллельном обновлении фильм может на мгновение оказаться в рейтинге дважды
+        Set<Integer> seen = new HashSet<>();
+        for (Entry entry : ranking) {
+            if (filmIds.size() >= count) {
+                break;
+            }
+            if (filter.test(entry.filmId) && seen.add(entry.filmId)) {
+                filmIds.add(entry.filmId);
+            }
+        }
+        return filmIds;
+    }
+
+    public int size() {
+        return likeCounts.size();
+    }
+
+    private void setLikeCount(int filmId, int count) {
+        likeCounts.compute(filmId, (id, oldCount) -> {
+            replaceEntry(id, oldCount, count);
+            return count;
+        });
+    }
+
+    private void changeLikeCount(int filmId, int delta) {
+        likeCounts.compute(filmId, (id, oldCount) -> {
+            int newCount = (oldCount == null ? 0 : oldCount) + delta;
+            replaceEntry(id, oldCount, newCount);
+            return newCount;
+        });
+    }
+
+    // новая запись добавляется раньше удаления старой, чтобы читатель не потерял фильм из рейтинга
+    private void replaceEntry(int filmId, Integer oldCount, int newCount) {
+        ranking.add(new Entry(filmId, newCount));
+        if (oldCount != null && oldCount != newCount) {
+            ranking.remove(new Entry(filmId, oldCount));
+        }
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        private final int filmId;
+        private final int likeCount;
+
+        private Entry(int filmId, int likeCount) {
+            this.filmId = filmId;
+            this.likeCount = likeCount;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byLikes = Integer.compare(other.likeCount, likeCount);
+            return byLikes != 0 ? byLikes : Integer.compare(filmId, other.filmId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry entry = (Entry) o;
+            return filmId == entry.filmId && likeCount == entry.likeCount;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(filmId, likeCount);
+        }
+    }
+}
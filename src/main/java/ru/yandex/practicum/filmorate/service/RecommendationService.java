@@ -0,0 +1,238 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.dao.LikesDao;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+/**
+ * Рекомендации фильмов по лайкам похожих пользователей.
+ * Похожими считаются пользователи с наибольшим числом общих лайков; пересечения считаются параллельно
+ * по всем кандидатам, а фильмы соседей ранжируются по сумме их схожести с пользователем.
+ * Готовый список зависит от лайков самого пользователя, от лайкнувших его фильмы и от лайков соседей.
+ * Лайк увеличивает только версии своего фильма и своего пользователя, а запись кэша хранит, от каких
+ * фильмов и пользователей она зависит, и сумму их версий на момент расчета. При чтении сумма
+ * пересчитывается: если она изменилась, список считается заново. Кэш ограничен по размеру, давно не
+ * использованные записи вытесняются по LRU внутри сегмента.
+ */
+@Service
+public class RecommendationService {
+
+    private static final int VERSION_SLOTS = 1 << 12;
+    private static final int MAX_SEGMENTS = 16;
+    // на сегмент не меньше 1024 записей, чтобы LRU по сегментам не сильно отличался от общего
+    private static final int MIN_SEGMENT_SIZE = 1024;
+
+    private final LikesIndex likesIndex;
+    private final LikesDao likesDao;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final int neighbors;
+    private final Segment[] segments;
+    // версии по ячейкам id: ячейка фильма меняется при изменении его лайкнувших, ячейка пользователя —
+    // при изменении его лайков
+    private final AtomicLongArray filmVersions = new AtomicLongArray(VERSION_SLOTS);
+    private final AtomicLongArray userVersions = new AtomicLongArray(VERSION_SLOTS);
+
+    public RecommendationService(LikesIndex likesIndex, LikesDao likesDao, FilmStorage filmStorage,
+                                 UserStorage userStorage,
+                                 @Value("${filmorate.recommendations.neighbors:20}") int neighbors,
+                                 @Value("${filmorate.recommendations.cache.max-size:10000}") int maxCachedUsers) {
+        this.likesIndex = likesIndex;
+        this.likesDao = likesDao;
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.neighbors = neighbors;
+        int segmentCount = Integer.highestOneBit(Math.max(1,
+                Math.min(MAX_SEGMENTS, maxCachedUsers / MIN_SEGMENT_SIZE)));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maxCachedUsers / segmentCount);
+        }
+    }
+
+    @PostConstruct
+    public void loadLikesIndex() {
+        likesIndex.load(likesDao.getAllLikedFilmIds());
+    }
+
+    public Collection<Film> getRecommendations(Integer userId, Integer limit) {
+        PageRequests.validateLimit(limit);
+        userStorage.findUserById(userId);
+
+        Segment segment = segment(userId);
+        Recommendations recommendations = segment.get(userId);
+        if (recommendations == null || recommendations.stamp != stamp(recommendations)) {
+            recommendations = computeRecommendations(userId);
+            segment.put(userId, recommendations);
+        }
+        int[] filmIds = recommendations.filmIds;
+        if (filmIds.length == 0) {
+            return Collections.emptyList();
+        }
+        List<Integer> topIds = Arrays.stream(filmIds)
+                .limit(limit)
+                .boxed()
+                .collect(Collectors.toList());
+        return filmStorage.findFilmsByIds(topIds);
+    }
+
+    public void onLikeAdded(Integer filmId, Integer userId) {
+        likesIndex.addLike(filmId, userId);
+        invalidate(filmId, userId);
+    }
+
+    public void onLikeDeleted(Integer filmId, Integer userId) {
+        likesIndex.deleteLike(filmId, userId);
+        invalidate(filmId, userId);
+    }
+
+    // версии растут после изменения индекса: расчет, прочитавший версию раньше новых лайков,
+    // при следующем чтении увидит другую сумму
+    private void invalidate(int filmId, int userId) {
+        filmVersions.incrementAndGet(slot(filmId));
+        userVersions.incrementAndGet(slot(userId));
+    }
+
+    private long stamp(Recommendations recommendations) {
+        long stamp = 0;
+        for (int filmId : recommendations.filmDependencies) {
+            stamp += filmVersions.get(slot(filmId));
+        }
+        for (int userId : recommendations.userDependencies) {
+            stamp += userVersions.get(slot(userId));
+        }
+        return stamp;
+    }
+
+    private static int slot(int id) {
+        return id & (VERSION_SLOTS - 1);
+    }
+
+    private Segment segment(int userId) {
+        return segments[userId & (segments.length - 1)];
+    }
+
+    // каждая версия читается раньше данных, которые от нее зависят
+    private Recommendations computeRecommendations(int userId) {
+        long stamp = userVersions.get(slot(userId));
+        int[] likedFilmIds = likesIndex.getLikedFilmIds(userId);
+        if (likedFilmIds.length == 0) {
+            return new Recommendations(SortedIntArrays.EMPTY, likedFilmIds, new int[]{userId}, stamp);
+        }
+        for (int filmId : likedFilmIds) {
+            stamp += filmVersions.get(slot(filmId));
+        }
+        // кандидаты — только пользователи, у которых есть хотя бы один общий лайк
+        long[] similarities = Arrays.stream(likedFilmIds)
+                .flatMap(filmId -> Arrays.stream(likesIndex.getLikerIds(filmId)))
+                .filter(candidateId -> candidateId != userId)
+                .distinct()
+                .parallel()
+                .mapToLong(candidateId -> pack(SortedIntArrays.intersectionSize(likedFilmIds,
+                        likesIndex.getLikedFilmIds(candidateId)), candidateId))
+                .toArray();
+
+        long[] topNeighbors = findTop(similarities, neighbors);
+        int[] userDependencies = new int[topNeighbors.length + 1];
+        userDependencies[0] = userId;
+        IntCountMap filmScores = new IntCountMap(neighbors * 16);
+        for (int i = 0; i < topNeighbors.length; i++) {
+            int neighborId = unpackId(topNeighbors[i]);
+            int overlap = (int) (topNeighbors[i] >>> 32);
+            userDependencies[i + 1] = neighborId;
+            stamp += userVersions.get(slot(neighborId));
+            for (int filmId : likesIndex.getLikedFilmIds(neighborId)) {
+                if (!SortedIntArrays.contains(likedFilmIds, filmId)) {
+                    filmScores.add(filmId, overlap);
+                }
+            }
+        }
+
+        long[] rankedFilms = new long[filmScores.size()];
+        int[] position = {0};
+        filmScores.forEach((filmId, score) -> rankedFilms[position[0]++] = pack(score, filmId));
+        long[] topFilms = findTop(rankedFilms, PageRequests.MAX_PAGE_SIZE);
+        int[] filmIds = new int[topFilms.length];
+        for (int i = 0; i < topFilms.length; i++) {
+            filmIds[i] = unpackId(topFilms[i]);
+        }
+        return new Recommendations(filmIds, likedFilmIds, userDependencies, stamp);
+    }
+
+    // старшие 32 бита — оценка, младшие — инвертированный id, чтобы при равной оценке выигрывал меньший id
+    private static long pack(int score, int id) {
+        return ((long) score << 32) | (Integer.MAX_VALUE - id);
+    }
+
+    private static int unpackId(long packed) {
+        return Integer.MAX_VALUE - (int) packed;
+    }
+
+    // k наибольших значений по убыванию
+    private static long[] findTop(long[] values, int k) {
+        PriorityQueue<Long> heap = new PriorityQueue<>(Math.min(values.length, k) + 1);
+        for (long value : values) {
+            if (heap.size() < k) {
+                heap.add(value);
+            } else if (heap.peek() < value) {
+                heap.poll();
+                heap.add(value);
+            }
+        }
+        long[] top = new long[heap.size()];
+        for (int i = top.length - 1; i >= 0; i--) {
+            top[i] = heap.poll();
+        }
+        return top;
+    }
+
+    private static final class Segment {
+        private final int maxSize;
+        private final LinkedHashMap<Integer, Recommendations> recommendations =
+                new LinkedHashMap<>(16, 0.75f, true);
+
+        private Segment(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        private synchronized Recommendations get(Integer userId) {
+            return recommendations.get(userId);
+        }
+
+        private synchronized void put(Integer userId, Recommendations userRecommendations) {
+            recommendations.put(userId, userRecommendations);
+            if (recommendations.size() > maxSize) {
+                // в порядке доступа первым идет давно не использованный пользователь
+                recommendations.remove(recommendations.keySet().iterator().next());
+            }
+        }
+    }
+
+    private static final class Recommendations {
+        private final int[] filmIds;
+        // фильмы пользователя и пользователи, от лайков которых зависит список, и сумма их версий
+        private final int[] filmDependencies;
+        private final int[] userDependencies;
+        private final long stamp;
+
+        private Recommendations(int[] filmIds, int[] filmDependencies, int[] userDependencies, long stamp) {
+            this.filmIds = filmIds;
+            this.filmDependencies = filmDependencies;
+            this.userDependencies = userDependencies;
+            this.stamp = stamp;
+        }
+    }
+}
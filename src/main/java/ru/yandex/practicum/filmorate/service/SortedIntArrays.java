@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Операции над отсортированными массивами уникальных int без повторов.
+ * Массивы не изменяются: вставка и удаление возвращают новую копию.
+ */
+final class SortedIntArrays {
+
+    static final int[] EMPTY = new int[0];
+
+    private SortedIntArrays() {
+    }
+
+    static int[] of(List<Integer> values) {
+        return values.stream()
+                .mapToInt(Integer::intValue)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    static boolean contains(int[] values, int value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    // возвращает тот же массив, если значение уже есть
+    static int[] insert(int[] values, int value) {
+        int position = Arrays.binarySearch(values, value);
+        if (position >= 0) {
+            return values;
+        }
+        int insertAt = -position - 1;
+        int[] updated = new int[values.length + 1];
+        System.arraycopy(values, 0, updated, 0, insertAt);
+        updated[insertAt] = value;
+        System.arraycopy(values, insertAt, updated, insertAt + 1, values.length - insertAt);
+        return updated;
+    }
+
+    // возвращает тот же массив, если значения нет, и null, если массив стал пустым
+    static int[] remove(int[] values, int value) {
+        int position = Arrays.binarySearch(values, value);
+        if (position < 0) {
+            return values;
+        }
+        if (values.length == 1) {
+            return null;
+        }
+        int[] updated = new int[values.length - 1];
+        System.arraycopy(values, 0, updated, 0, position);
+        System.arraycopy(values, position + 1, updated, position, values.length - position - 1);
+        return updated;
+    }
+
+    static int[] intersection(int[] first, int[] second) {
+        int[] common = new int[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(common, size);
+    }
+
+    static int intersectionSize(int[] first, int[] second) {
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                size++;
+                i++;
+                j++;
+            }
+        }
+        return size;
+    }
+}
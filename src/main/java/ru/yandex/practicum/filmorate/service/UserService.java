@@ -2,33 +2,66 @@ package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 import ru.yandex.practicum.filmorate.storage.user.dao.FriendListDao;
 
+import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 @Service
 public class UserService {
+    // запись в friend_list и изменение FriendGraph для одной пары выполняются под одной блокировкой,
+    // иначе параллельные добавление и удаление дружбы могут оставить граф не таким, как в базе
+    private static final int FRIENDSHIP_LOCK_STRIPES = 64;
+
+    private final ReentrantLock[] friendshipLocks = new ReentrantLock[FRIENDSHIP_LOCK_STRIPES];
     private final UserStorage userStorage;
     private final FriendListDao friendListDao;
+    private final FriendGraph friendGraph;
+    private final EntityVersions entityVersions;
 
     @Autowired
-    public UserService(UserStorage userStorage, FriendListDao friendListDao) {
+    public UserService(UserStorage userStorage, FriendListDao friendListDao, FriendGraph friendGraph,
+                       EntityVersions entityVersions) {
         this.userStorage = userStorage;
         this.friendListDao = friendListDao;
+        this.friendGraph = friendGraph;
+        this.entityVersions = entityVersions;
+        for (int i = 0; i < FRIENDSHIP_LOCK_STRIPES; i++) {
+            friendshipLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void loadFriendGraph() {
+        friendGraph.load(friendListDao.getAllFriendIds());
     }
 
     public Collection<User> getAllUsers() {
         return userStorage.findAll();
     }
 
+    public Collection<User> getUsersPage(Integer afterId, Integer limit) {
+        PageRequests.validate(afterId, limit);
+        return userStorage.findPage(afterId, limit);
+    }
+
     public User createUser(User user) {
         return userStorage.createUser(user);
     }
 
+    public List<User> createUsers(List<User> users) {
+        return userStorage.createUsers(users);
+    }
+
     public User updateUser(User user) {
-        return userStorage.updateUser(user);
+        User updatedUser = userStorage.updateUser(user);
+        entityVersions.userChanged(updatedUser.getId());
+        return updatedUser;
     }
 
     public User findUserById(Integer userId) {
@@ -36,18 +69,71 @@ public class UserService {
     }
 
     public void addFriend(Integer id, Integer friendId) {
-        friendListDao.addFriend(id, friendId);
+        ReentrantLock lock = friendshipLock(id, friendId);
+        lock.lock();
+        try {
+            friendListDao.addFriend(id, friendId);
+            friendGraph.addFriend(id, friendId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // возвращает только добавленные связи: уже существующие и ссылающиеся на несуществующих пользователей пропускаются
+    public List<Friendship> addFriends(List<Friendship> friendships) {
+        // блокировки всех пар пакета берутся по возрастанию номера, чтобы пакеты не ждали друг друга по кругу
+        int[] stripes = friendships.stream()
+                .mapToInt(friendship -> stripe(friendship.getUserId(), friendship.getFriendId()))
+                .distinct()
+                .sorted()
+                .toArray();
+        for (int stripe : stripes) {
+            friendshipLocks[stripe].lock();
+        }
+        try {
+            List<Friendship> addedFriendships = friendListDao.addFriends(friendships);
+            for (Friendship friendship : addedFriendships) {
+                friendGraph.addFriend(friendship.getUserId(), friendship.getFriendId());
+            }
+            return addedFriendships;
+        } finally {
+            for (int stripe : stripes) {
+                friendshipLocks[stripe].unlock();
+            }
+        }
     }
 
     public void deleteFriend(Integer id, Integer friendId) {
-        friendListDao.deleteFriend(id, friendId);
+        ReentrantLock lock = friendshipLock(id, friendId);
+        lock.lock();
+        try {
+            friendListDao.deleteFriend(id, friendId);
+            friendGraph.deleteFriend(id, friendId);
+        } finally {
+            lock.unlock();
+        }
     }
 
     public Collection<User> getFriendList(Integer id) {
-        return friendListDao.getAll(id);
+        return findUsersByIds(friendGraph.getFriendIds(id));
     }
 
     public Collection<User> getCommonFriends(Integer id, Integer otherId) {
-        return friendListDao.getCommonFriends(id, otherId);
+        return findUsersByIds(friendGraph.getCommonFriendIds(id, otherId));
+    }
+
+    private ReentrantLock friendshipLock(Integer id, Integer friendId) {
+        return friendshipLocks[stripe(id, friendId)];
+    }
+
+    private static int stripe(Integer id, Integer friendId) {
+        return (31 * Objects.hashCode(id) + Objects.hashCode(friendId)) & (FRIENDSHIP_LOCK_STRIPES - 1);
+    }
+
+    private Collection<User> findUsersByIds(int[] userIds) {
+        if (userIds.length == 0) {
+            return Collections.emptyList();
+        }
+        return userStorage.findUsersByIds(Arrays.stream(userIds).boxed().collect(Collectors.toList()));
     }
 }
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Выполняет запрос с IN-списком пачками фиксированного размера из {@link #BATCH_SIZES}.
+ * Неполная пачка дополняется последним идентификатором, поэтому число разных текстов запроса
+ * не зависит от размера каталога, а количество обращений к базе ограничено.
+ */
+public final class BatchedInQuery {
+
+    // размеров немного, поэтому подготовленные запросы переиспользуются
+    private static final int[] BATCH_SIZES = {16, 64, 256};
+
+    private BatchedInQuery() {
+    }
+
+    // sqlTemplate содержит %s на месте списка параметров IN
+    public static void query(JdbcTemplate jdbcTemplate, String sqlTemplate, List<Integer> ids,
+                             RowCallbackHandler handler) {
+        int from = 0;
+        while (from < ids.size()) {
+            int batchSize = batchSizeFor(ids.size() - from);
+            int to = Math.min(from + batchSize, ids.size());
+            Object[] params = new Object[batchSize];
+            for (int i = 0; i < batchSize; i++) {
+                params[i] = ids.get(Math.min(from + i, to - 1));
+            }
+            String inSql = String.join(",", Collections.nCopies(batchSize, "?"));
+            jdbcTemplate.query(String.format(sqlTemplate, inSql), handler, params);
+            from = to;
+        }
+    }
+
+    private static int batchSizeFor(int remaining) {
+        for (int batchSize : BATCH_SIZES) {
+            if (remaining <= batchSize) {
+                return batchSize;
+            }
+        }
+        return BATCH_SIZES[BATCH_SIZES.length - 1];
+    }
+}
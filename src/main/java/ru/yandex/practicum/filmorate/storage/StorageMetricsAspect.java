@@ -0,0 +1,174 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.GenreNotFoundException;
+import ru.yandex.practicum.filmorate.exception.MpaRatingNotFoundException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.dao.GenreDao;
+import ru.yandex.practicum.filmorate.storage.film.dao.LikesDao;
+import ru.yandex.practicum.filmorate.storage.film.dao.MpaDao;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.user.dao.FriendListDao;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики всех методов хранилищ и DAO: таймер filmorate.storage.calls с тегами storage, implementation,
+ * method и outcome, а для методов, возвращающих записи, — распределение filmorate.storage.rows.
+ * Метры создаются один раз на метод и реализацию, поэтому на каждый вызов приходятся только
+ * два поиска в {@link ConcurrentHashMap} и запись в таймер.
+ */
+@Aspect
+@Component
+public class StorageMetricsAspect {
+
+    public static final String CALLS_METRIC = "filmorate.storage.calls";
+    public static final String ROWS_METRIC = "filmorate.storage.rows";
+
+    private static final List<Class<?>> STORAGES = List.of(FilmStorage.class, UserStorage.class, LikesDao.class,
+            FriendListDao.class, GenreDao.class, MpaDao.class);
+
+    enum Outcome {
+        SUCCESS("success"),
+        NOT_FOUND("not_found"),
+        VALIDATION_ERROR("validation_error"),
+        CONFLICT("conflict"),
+        ERROR("error");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+
+        static Outcome of(Throwable e) {
+            if (e instanceof FilmNotFoundException || e instanceof UserNotFoundException
+                    || e instanceof GenreNotFoundException || e instanceof MpaRatingNotFoundException
+                    || e instanceof EmptyResultDataAccessException) {
+                return NOT_FOUND;
+            }
+            if (e instanceof ValidationException) {
+                return VALIDATION_ERROR;
+            }
+            if (e instanceof DataIntegrityViolationException) {
+                return CONFLICT;
+            }
+            return ERROR;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Method, MethodMeters>> meters = new ConcurrentHashMap<>();
+
+    public StorageMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(* ru.yandex.practicum.filmorate.storage.film.FilmStorage.*(..))"
+            + " || execution(* ru.yandex.practicum.filmorate.storage.user.UserStorage.*(..))"
+            + " || execution(* ru.yandex.practicum.filmorate.storage.film.dao.LikesDao.*(..))"
+            + " || execution(* ru.yandex.practicum.filmorate.storage.user.dao.FriendListDao.*(..))"
+            + " || execution(* ru.yandex.practicum.filmorate.storage.film.dao.GenreDao.*(..))"
+            + " || execution(* ru.yandex.practicum.filmorate.storage.film.dao.MpaDao.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            long elapsed = System.nanoTime() - start;
+            methodMeters(joinPoint).record(Outcome.of(e), elapsed);
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+        MethodMeters methodMeters = methodMeters(joinPoint);
+        methodMeters.record(Outcome.SUCCESS, elapsed);
+        methodMeters.recordRows(result);
+        return result;
+    }
+
+    private MethodMeters methodMeters(ProceedingJoinPoint joinPoint) {
+        Class<?> implementation = joinPoint.getTarget().getClass();
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        return meters.computeIfAbsent(implementation, type -> new ConcurrentHashMap<>())
+                .computeIfAbsent(method, m -> new MethodMeters(implementation, m));
+    }
+
+    private final class MethodMeters {
+        private final String storage;
+        private final String implementation;
+        private final String method;
+        // таймеры по исходам создаются при первом вызове с таким исходом
+        private final Timer[] timers = new Timer[Outcome.values().length];
+        // null, если метод не возвращает записи
+        private final DistributionSummary rows;
+
+        private MethodMeters(Class<?> implementation, Method method) {
+            this.storage = STORAGES.stream()
+                    .filter(type -> type.isAssignableFrom(implementation))
+                    .map(Class::getSimpleName)
+                    .findFirst()
+                    .orElse(implementation.getSimpleName());
+            this.implementation = implementation.getSimpleName();
+            this.method = method.getName();
+            this.rows = returnsRows(method.getReturnType()) ? DistributionSummary.builder(ROWS_METRIC)
+                    .baseUnit("rows")
+                    .tag("storage", storage)
+                    .tag("implementation", this.implementation)
+                    .tag("method", this.method)
+                    .register(meterRegistry) : null;
+        }
+
+        private void record(Outcome outcome, long elapsedNanos) {
+            Timer timer = timers[outcome.ordinal()];
+            if (timer == null) {
+                // гонка безопасна: реестр вернет один и тот же таймер
+                timer = Timer.builder(CALLS_METRIC)
+                        .tag("storage", storage)
+                        .tag("implementation", implementation)
+                        .tag("method", method)
+                        .tag("outcome", outcome.tag)
+                        .register(meterRegistry);
+                timers[outcome.ordinal()] = timer;
+            }
+            timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private void recordRows(Object result) {
+            if (rows == null) {
+                return;
+            }
+            if (result instanceof Collection) {
+                rows.record(((Collection<?>) result).size());
+            } else if (result instanceof Map) {
+                rows.record(((Map<?, ?>) result).size());
+            } else {
+                rows.record(result == null ? 0 : 1);
+            }
+        }
+
+        // boolean, число или void — не записи
+        private boolean returnsRows(Class<?> returnType) {
+            return !returnType.isPrimitive() && !Boolean.class.equals(returnType)
+                    && !Number.class.isAssignableFrom(returnType);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import lombok.Data;
+
+@Data
+public class CacheStats {
+
+    private final String name;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long size;
+
+    public double getHitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
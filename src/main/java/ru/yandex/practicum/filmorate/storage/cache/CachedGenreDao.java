@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.dao.GenreDao;
+import ru.yandex.practicum.filmorate.storage.film.daoImpl.GenreDaoImpl;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Справочник жанров в памяти. Таблица genres меняется только через data.sql,
+ * поэтому она целиком загружается при старте и перечитывается при промахе или сбросе кэша.
+ */
+@Component
+@Primary
+public class CachedGenreDao implements GenreDao, ManagedCache {
+
+    private final GenreDao genreDao;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile ReferenceTable<Genre> genres;
+
+    public CachedGenreDao(GenreDaoImpl genreDao) {
+        this.genreDao = genreDao;
+    }
+
+    @PostConstruct
+    public void load() {
+        genres = new ReferenceTable<>(genreDao.getAllGenres(), Genre::getId);
+    }
+
+    @Override
+    public Collection<Genre> getAllGenres() {
+        hits.increment();
+        return genres.getAll();
+    }
+
+    @Override
+    public Genre getGenreById(Integer genreId) {
+        Genre genre = genres.get(genreId);
+        if (genre != null) {
+            hits.increment();
+            return genre;
+        }
+        misses.increment();
+        // если жанра нет и в базе, делегат выбросит GenreNotFoundException
+        genre = genreDao.getGenreById(genreId);
+        load();
+        return genre;
+    }
+
+    @Override
+    public String getName() {
+        return "genres";
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return new CacheStats(getName(), hits.sum(), misses.sum(), 0, genres.size());
+    }
+
+    @Override
+    public void invalidateAll() {
+        load();
+    }
+}
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.film.dao.MpaDao;
+import ru.yandex.practicum.filmorate.storage.film.daoImpl.MpaDaoImpl;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Справочник возрастных рейтингов в памяти. Таблица mpa_ratings меняется только через data.sql,
+ * поэтому она целиком загружается при старте и перечитывается при промахе или сбросе кэша.
+ */
+@Component
+@Primary
+public class CachedMpaDao implements MpaDao, ManagedCache {
+
+    private final MpaDao mpaDao;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile ReferenceTable<Mpa> ratings;
+
+    public CachedMpaDao(MpaDaoImpl mpaDao) {
+        this.mpaDao = mpaDao;
+    }
+
+    @PostConstruct
+    public void load() {
+        ratings = new ReferenceTable<>(mpaDao.getAllMpa(), Mpa::getId);
+    }
+
+    @Override
+    public Collection<Mpa> getAllMpa() {
+        hits.increment();
+        return ratings.getAll();
+    }
+
+    @Override
+    public Mpa getMpaById(int mpaId) {
+        Mpa mpa = ratings.get(mpaId);
+        if (mpa != null) {
+            hits.increment();
+            return mpa;
+        }
+        misses.increment();
+        // если рейтинга нет и в базе, делегат выбросит MpaRatingNotFoundException
+        mpa = mpaDao.getMpaById(mpaId);
+        load();
+        return mpa;
+    }
+
+    @Override
+    public String getName() {
+        return "mpa";
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return new CacheStats(getName(), hits.sum(), misses.sum(), 0, ratings.size());
+    }
+
+    @Override
+    public void invalidateAll() {
+        load();
+    }
+}
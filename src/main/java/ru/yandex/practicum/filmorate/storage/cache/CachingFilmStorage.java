@@ -0,0 +1,296 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш фильмов по идентификатору поверх любого {@link FilmStorage}.
+ * Записи вытесняются по размеру (LRU) и по времени жизни; фильм удаляется из кэша
+ * при обновлении и при изменении его лайков. Кэш разбит на сегменты со своими блокировками,
+ * LRU соблюдается внутри сегмента. Наружу отдаются копии, чтобы вызывающий код не менял кэшированный фильм.
+ * Перед чтением из хранилища запоминается счетчик сбросов фильма: если за время чтения фильм
+ * сбросили, прочитанное значение может быть устаревшим и в кэш не кладется.
+ */
+@Component
+@Primary
+public class CachingFilmStorage implements FilmStorage, ManagedCache {
+
+    private static final int MAX_SEGMENTS = 16;
+    // на сегмент не меньше 1024 записей, чтобы LRU по сегментам не сильно отличался от общего
+    private static final int MIN_SEGMENT_SIZE = 1024;
+    private static final int INVALIDATION_SLOTS = 1 << 12;
+
+    private final FilmStorage filmStorage;
+    private final long ttlNanos;
+    private final Segment[] segments;
+    // счетчики сбросов по ячейкам id; invalidateAll увеличивает общий счетчик
+    private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_SLOTS);
+    private final AtomicLong clears = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingFilmStorage(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+                              @Value("${filmorate.cache.films.max-size:10000}") int maxSize,
+                              @Value("${filmorate.cache.films.ttl-seconds:300}") long ttlSeconds) {
+        this.filmStorage = filmStorage;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maxSize / MIN_SEGMENT_SIZE)));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maxSize / segmentCount);
+        }
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return filmStorage.findAll();
+    }
+
+    @Override
+    public Collection<Film> findPage(Integer afterId, Integer limit) {
+        return filmStorage.findPage(afterId, limit);
+    }
+
+    @Override
+    public Film createFilm(Film film) {
+        return filmStorage.createFilm(film);
+    }
+
+    @Override
+    public List<Film> createFilms(List<Film> films) {
+        return filmStorage.createFilms(films);
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        try {
+            return filmStorage.updateFilm(film);
+        } finally {
+            invalidate(film.getId());
+        }
+    }
+
+    @Override
+    public Film findFilmById(Integer filmId) {
+        Film film = get(filmId);
+        if (film != null) {
+            return film.copy();
+        }
+        long generation = generation(filmId);
+        film = filmStorage.findFilmById(filmId);
+        put(film, generation);
+        return film;
+    }
+
+    @Override
+    public Collection<Film> findFilmsByIds(List<Integer> filmIds) {
+        Map<Integer, Film> found = new HashMap<>();
+        List<Integer> missingIds = new ArrayList<>();
+        Map<Integer, Long> generations = new HashMap<>();
+        for (Integer filmId : filmIds) {
+            Film film = get(filmId);
+            if (film != null) {
+                found.put(filmId, film.copy());
+            } else {
+                missingIds.add(filmId);
+                generations.put(filmId, generation(filmId));
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            for (Film film : filmStorage.findFilmsByIds(missingIds)) {
+                put(film, generations.get(film.getId()));
+                found.put(film.getId(), film);
+            }
+        }
+        return inRequestedOrder(filmIds, found);
+    }
+
+    // кэш хранит полные фильмы; без него краткая выдача читается из хранилища без лайков и не кэшируется
+    @Override
+    public Film findFilmSummaryById(Integer filmId) {
+        Film film = get(filmId);
+        return film != null ? film.withoutLikes() : filmStorage.findFilmSummaryById(filmId);
+    }
+
+    @Override
+    public Collection<Film> findFilmSummariesByIds(List<Integer> filmIds) {
+        Map<Integer, Film> found = new HashMap<>();
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer filmId : filmIds) {
+            Film film = get(filmId);
+            if (film != null) {
+                found.put(filmId, film.withoutLikes());
+            } else {
+                missingIds.add(filmId);
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            for (Film film : filmStorage.findFilmSummariesByIds(missingIds)) {
+                found.put(film.getId(), film);
+            }
+        }
+        return inRequestedOrder(filmIds, found);
+    }
+
+    @Override
+    public Collection<Film> findPopularFilms(Integer count, Integer genreId, Integer year) {
+        return filmStorage.findPopularFilms(count, genreId, year);
+    }
+
+    @Override
+    public void onLikeAdded(Integer filmId, Integer userId) {
+        filmStorage.onLikeAdded(filmId, userId);
+    }
+
+    @Override
+    public void onLikeDeleted(Integer filmId, Integer userId) {
+        filmStorage.onLikeDeleted(filmId, userId);
+    }
+
+    @Override
+    public void onFilmLikesChanged(Integer filmId) {
+        filmStorage.onFilmLikesChanged(filmId);
+        invalidate(filmId);
+    }
+
+    @Override
+    public String getName() {
+        return "films";
+    }
+
+    @Override
+    public CacheStats getStats() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return new CacheStats(getName(), hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    @Override
+    public void invalidateAll() {
+        clears.incrementAndGet();
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public void invalidate(Integer filmId) {
+        segment(filmId).remove(filmId);
+    }
+
+    // возвращает сам кэшированный фильм; наружу он отдается только копией
+    private Film get(Integer filmId) {
+        Film film = segment(filmId).get(filmId);
+        if (film == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return film;
+    }
+
+    private void put(Film film, long generation) {
+        segment(film.getId()).put(film.copy(), generation);
+    }
+
+    private long generation(Integer filmId) {
+        return clears.get() + invalidations.get(slot(filmId));
+    }
+
+    private Segment segment(Integer filmId) {
+        return segments[filmId & (segments.length - 1)];
+    }
+
+    private static int slot(Integer filmId) {
+        return filmId & (INVALIDATION_SLOTS - 1);
+    }
+
+    private static List<Film> inRequestedOrder(List<Integer> filmIds, Map<Integer, Film> found) {
+        List<Film> result = new ArrayList<>(found.size());
+        for (Integer filmId : filmIds) {
+            Film film = found.get(filmId);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    private final class Segment {
+        private final int maxSize;
+        private final LinkedHashMap<Integer, CachedFilm> films = new LinkedHashMap<>(16, 0.75f, true);
+
+        private Segment(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        private synchronized Film get(Integer filmId) {
+            CachedFilm cachedFilm = films.get(filmId);
+            if (cachedFilm == null) {
+                return null;
+            }
+            if (cachedFilm.expiresAt - System.nanoTime() <= 0) {
+                films.remove(filmId);
+                evictions.increment();
+                return null;
+            }
+            return cachedFilm.film;
+        }
+
+        private synchronized void put(Film film, long generation) {
+            if (generation(film.getId()) != generation) {
+                // фильм сбросили, пока он читался из хранилища
+                return;
+            }
+            films.put(film.getId(), new CachedFilm(film, System.nanoTime() + ttlNanos));
+            if (films.size() > maxSize) {
+                // в порядке доступа первым идет давно не использованный фильм
+                Integer eldestId = films.keySet().iterator().next();
+                films.remove(eldestId);
+                evictions.increment();
+            }
+        }
+
+        // счетчик растет под той же блокировкой, что и проверка в put
+        private synchronized void remove(Integer filmId) {
+            invalidations.incrementAndGet(slot(filmId));
+            films.remove(filmId);
+        }
+
+        private synchronized void clear() {
+            films.clear();
+        }
+
+        private synchronized int size() {
+            return films.size();
+        }
+    }
+
+    private static final class CachedFilm {
+        private final Film film;
+        private final long expiresAt;
+
+        private CachedFilm(Film film, long expiresAt) {
+            this.film = film;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
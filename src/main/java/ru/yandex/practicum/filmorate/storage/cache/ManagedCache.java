@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+/**
+ * Кэш, который можно сбросить и у которого можно запросить статистику через {@code /cache}.
+ */
+public interface ManagedCache {
+
+    String getName();
+
+    CacheStats getStats();
+
+    void invalidateAll();
+}
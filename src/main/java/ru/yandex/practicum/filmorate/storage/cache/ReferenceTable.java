@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Неизменяемый снимок справочной таблицы: массив, индексированный идентификатором записи.
+ * При обновлении справочника снимок заменяется целиком.
+ */
+final class ReferenceTable<T> {
+
+    private final Object[] byId;
+    private final List<T> all;
+
+    ReferenceTable(Collection<T> rows, ToIntFunction<T> idExtractor) {
+        int maxId = rows.stream().mapToInt(idExtractor).max().orElse(0);
+        this.byId = new Object[maxId + 1];
+        for (T row : rows) {
+            byId[idExtractor.applyAsInt(row)] = row;
+        }
+        this.all = List.copyOf(rows);
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int id) {
+        return id >= 0 && id < byId.length ? (T) byId[id] : null;
+    }
+
+    List<T> getAll() {
+        return all;
+    }
+
+    int size() {
+        return all.size();
+    }
+}
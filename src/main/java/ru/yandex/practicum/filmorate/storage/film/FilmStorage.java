@@ -3,17 +3,51 @@ package ru.yandex.practicum.filmorate.storage.film;
 import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
 
 public interface FilmStorage {
 
     Collection<Film> findAll();
 
+    Collection<Film> findPage(Integer afterId, Integer limit);
+
     Film createFilm(Film film);
 
+    // пакетное создание для загрузки каталога; идентификаторы проставляются в переданные фильмы
+    default List<Film> createFilms(List<Film> films) {
+        films.forEach(this::createFilm);
+        return films;
+    }
+
     Film updateFilm(Film film);
 
     Film findFilmById(Integer filmId);
 
-    Collection<Film> findPopularFilms(Integer count);
+    Collection<Film> findFilmsByIds(List<Integer> filmIds);
+
+    // краткая выдача: фильмы без лайков (likes == null); хранилище с базой не читает лайки вовсе
+    default Film findFilmSummaryById(Integer filmId) {
+        return findFilmById(filmId).withoutLikes();
+    }
+
+    default Collection<Film> findFilmSummariesByIds(List<Integer> filmIds) {
+        return findFilmsByIds(filmIds).stream()
+                .map(Film::withoutLikes)
+                .collect(Collectors.toList());
+    }
+
+    // genreId и year необязательны: null означает отсутствие фильтра
+    Collection<Film> findPopularFilms(Integer count, Integer genreId, Integer year);
+
+    // вызываются после записи лайка в LikesDao: хранилище, которое само держит лайки, обновляет по ним свои данные
+    default void onLikeAdded(Integer filmId, Integer userId) {
+    }
+
+    default void onLikeDeleted(Integer filmId, Integer userId) {
+    }
 
+    // вызывается после изменения лайков фильма, чтобы хранилище могло сбросить устаревшие данные
+    default void onFilmLikesChanged(Integer filmId) {
+    }
 }
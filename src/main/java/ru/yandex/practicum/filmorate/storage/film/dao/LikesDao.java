@@ -1,12 +1,41 @@
 package ru.yandex.practicum.filmorate.storage.film.dao;
 
+import ru.yandex.practicum.filmorate.model.Like;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public interface LikesDao {
 
     Set<Integer> getFilmLikes(Integer filmId);
 
+    // лайки фильма, прочитанные из films_likes вместе с фильмом, с учетом еще не записанных изменений
+    default Set<Integer> withUnsavedLikes(Integer filmId, Set<Integer> storedLikes) {
+        return storedLikes;
+    }
+
+    Map<Integer, Integer> getLikeCounts();
+
+    // понравившиеся фильмы всех пользователей, идентификаторы фильмов по возрастанию
+    Map<Integer, List<Integer>> getAllLikedFilmIds();
+
     void addLikeToFilm(Integer filmId, Integer userId);
 
-    void deleteLikeFromFilm(Integer filmId, Integer userId);
+    boolean deleteLikeFromFilm(Integer filmId, Integer userId);
+
+    // проверяет существование фильма и пользователя и возвращает, стоит ли уже лайк
+    boolean checkLike(Integer filmId, Integer userId);
+
+    // пакетная запись накопленных изменений; уже существующие и уже удаленные лайки пропускаются
+    void applyLikeChanges(Collection<Like> addedLikes, Collection<Like> deletedLikes);
+
+    // пакетное добавление при загрузке; возвращает только вставленные лайки, а уже существующие
+    // и ссылающиеся на несуществующие фильм или пользователя пропускает
+    List<Like> addLikes(List<Like> likes);
+
+    // лайки, ссылающиеся на несуществующие фильм или пользователя, с текстом ошибки;
+    // фильмы и пользователи проверяются пачками, без запроса на каждый лайк
+    Map<Like, String> findInvalidLikes(Collection<Like> likes);
 }
@@ -1,12 +1,22 @@
 package ru.yandex.practicum.filmorate.storage.film.daoImpl;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.BatchedInQuery;
 import ru.yandex.practicum.filmorate.storage.film.dao.LikesDao;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Component
@@ -25,25 +35,201 @@ public class LikesDaoImpl implements LikesDao {
     }
 
     @Override
+    public Map<Integer, Integer> getLikeCounts() {
+        String sqlQuery = "SELECT film_id, like_count FROM films";
+        Map<Integer, Integer> likeCounts = new HashMap<>();
+        jdbcTemplate.query(sqlQuery, (rs) -> {
+            likeCounts.put(rs.getInt("film_id"), rs.getInt("like_count"));
+        });
+        return likeCounts;
+    }
+
+    @Override
+    public Map<Integer, List<Integer>> getAllLikedFilmIds() {
+        String sqlQuery = "SELECT user_id, film_id FROM films_likes ORDER BY user_id, film_id";
+        Map<Integer, List<Integer>> likedFilmIds = new HashMap<>();
+        jdbcTemplate.query(sqlQuery, (rs) -> {
+            likedFilmIds.computeIfAbsent(rs.getInt("user_id"), id -> new ArrayList<>()).add(rs.getInt("film_id"));
+        });
+        return likedFilmIds;
+    }
+
+    @Override
+    @Transactional
     public void addLikeToFilm(Integer filmId, Integer userId) {
         String sqlQuery = "INSERT INTO films_likes(film_id, user_id)" +
                 "VALUES(?, ?)";
-        jdbcTemplate.update(sqlQuery, filmId, userId);
+        try {
+            jdbcTemplate.update(sqlQuery, filmId, userId);
+        } catch (DuplicateKeyException e) {
+            throw e;
+        } catch (DataIntegrityViolationException e) {
+            throw translateForeignKeyViolation(e, filmId, userId);
+        }
+        changeLikeCount(filmId, 1);
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteLikeFromFilm(Integer filmId, Integer userId) {
+        String sqlQuery = "DELETE FROM films_likes WHERE user_id = ? AND film_id = ?";
+        if (jdbcTemplate.update(sqlQuery, userId, filmId) == 0) {
+            // существование фильма проверяется только если удалять было нечего
+            if (!checkFilmId(filmId)) {
+                throw new FilmNotFoundException("Film id " + filmId + " not found");
+            }
+            return false;
+        }
+        changeLikeCount(filmId, -1);
+        return true;
+    }
 
+    @Override
+    public boolean checkLike(Integer filmId, Integer userId) {
+        String sqlQuery = "SELECT (SELECT COUNT(*) FROM films WHERE film_id = ?) AS films, " +
+                "(SELECT COUNT(*) FROM users WHERE user_id = ?) AS users, " +
+                "(SELECT COUNT(*) FROM films_likes WHERE film_id = ? AND user_id = ?) AS likes";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sqlQuery, (rs, rowNum) -> {
+            if (rs.getInt("films") == 0) {
+                throw new FilmNotFoundException("Film id " + filmId + " not found");
+            }
+            if (rs.getInt("users") == 0) {
+                throw new UserNotFoundException("Пользователь с идентификатором " + userId + " не найден");
+            }
+            return rs.getInt("likes") > 0;
+        }, filmId, userId, filmId, userId));
     }
 
     @Override
-    public void deleteLikeFromFilm(Integer filmId, Integer userId) {
-        if (checkFilmId(filmId) == 0) {
-            throw new FilmNotFoundException("Film id " + filmId + " not found");
+    public Map<Like, String> findInvalidLikes(Collection<Like> likes) {
+        Set<Integer> filmIds = new HashSet<>();
+        Set<Integer> userIds = new HashSet<>();
+        for (Like like : likes) {
+            filmIds.add(like.getFilmId());
+            userIds.add(like.getUserId());
         }
-        String sqlQuery = "DELETE FROM films_likes WHERE user_id = ? AND film_id = ?";
-        jdbcTemplate.update(sqlQuery, userId, filmId);
+        Set<Integer> existingFilmIds = findExistingIds("SELECT film_id FROM films WHERE film_id IN (%s)", filmIds);
+        Set<Integer> existingUserIds = findExistingIds("SELECT user_id FROM users WHERE user_id IN (%s)", userIds);
+        // тексты совпадают с ошибками checkLike
+        Map<Like, String> invalidLikes = new HashMap<>();
+        for (Like like : likes) {
+            if (!existingFilmIds.contains(like.getFilmId())) {
+                invalidLikes.put(like, "Film id " + like.getFilmId() + " not found");
+            } else if (!existingUserIds.contains(like.getUserId())) {
+                invalidLikes.put(like, "Пользователь с идентификатором " + like.getUserId() + " не найден");
+            }
+        }
+        return invalidLikes;
+    }
+
+    private Set<Integer> findExistingIds(String sqlTemplate, Set<Integer> ids) {
+        Set<Integer> existingIds = new HashSet<>();
+        BatchedInQuery.query(jdbcTemplate, sqlTemplate, new ArrayList<>(ids), rs -> {
+            existingIds.add(rs.getInt(1));
+        });
+        return existingIds;
     }
 
-    private int checkFilmId(int id) {
-        String sql = "select count(*) from FILMS_LIKES where FILM_ID = ?";
-        return jdbcTemplate.queryForObject(sql, Integer.class, id);
+    @Override
+    @Transactional
+    public void applyLikeChanges(Collection<Like> addedLikes, Collection<Like> deletedLikes) {
+        String insertQuery = "INSERT INTO films_likes(film_id, user_id) " +
+                "SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM films_likes WHERE film_id = ? AND user_id = ?)";
+        String deleteQuery = "DELETE FROM films_likes WHERE film_id = ? AND user_id = ?";
+        List<Like> added = new ArrayList<>(addedLikes);
+        List<Like> deleted = new ArrayList<>(deletedLikes);
+        Map<Integer, Integer> deltas = new HashMap<>();
+        collectDeltas(jdbcTemplate.batchUpdate(insertQuery, added, Math.max(1, added.size()),
+                (stmt, like) -> {
+                    stmt.setInt(1, like.getFilmId());
+                    stmt.setInt(2, like.getUserId());
+                    stmt.setInt(3, like.getFilmId());
+                    stmt.setInt(4, like.getUserId());
+                }), added, 1, deltas);
+        collectDeltas(jdbcTemplate.batchUpdate(deleteQuery, deleted, Math.max(1, deleted.size()),
+                (stmt, like) -> {
+                    stmt.setInt(1, like.getFilmId());
+                    stmt.setInt(2, like.getUserId());
+                }), deleted, -1, deltas);
+        updateLikeCounts(deltas);
+    }
+
+    @Override
+    @Transactional
+    public List<Like> addLikes(List<Like> likes) {
+        String sqlQuery = "INSERT INTO films_likes(film_id, user_id) " +
+                "SELECT f.film_id, u.user_id FROM films AS f JOIN users AS u ON u.user_id = ? " +
+                "WHERE f.film_id = ? " +
+                "AND NOT EXISTS (SELECT 1 FROM films_likes WHERE film_id = ? AND user_id = ?)";
+        int[][] updateCounts = jdbcTemplate.batchUpdate(sqlQuery, likes, Math.max(1, likes.size()),
+                (stmt, like) -> {
+                    stmt.setInt(1, like.getUserId());
+                    stmt.setInt(2, like.getFilmId());
+                    stmt.setInt(3, like.getFilmId());
+                    stmt.setInt(4, like.getUserId());
+                });
+        List<Like> added = new ArrayList<>();
+        int i = 0;
+        for (int[] batch : updateCounts) {
+            for (int count : batch) {
+                if (count > 0) {
+                    added.add(likes.get(i));
+                }
+                i++;
+            }
+        }
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (Like like : added) {
+            deltas.merge(like.getFilmId(), 1, Integer::sum);
+        }
+        updateLikeCounts(deltas);
+        return added;
+    }
+
+    private void updateLikeCounts(Map<Integer, Integer> deltas) {
+        deltas.values().removeIf(delta -> delta == 0);
+        jdbcTemplate.batchUpdate("UPDATE films SET like_count = like_count + ? WHERE film_id = ?",
+                new ArrayList<>(deltas.entrySet()), Math.max(1, deltas.size()), (stmt, delta) -> {
+                    stmt.setInt(1, delta.getValue());
+                    stmt.setInt(2, delta.getKey());
+                });
+    }
+
+    // для like_count учитываются только строки, которые действительно были вставлены или удалены
+    private static void collectDeltas(int[][] updateCounts, List<Like> likes, int sign,
+                                      Map<Integer, Integer> deltas) {
+        int i = 0;
+        for (int[] batch : updateCounts) {
+            for (int count : batch) {
+                if (count > 0) {
+                    deltas.merge(likes.get(i).getFilmId(), sign, Integer::sum);
+                }
+                i++;
+            }
+        }
+    }
+
+    // счетчик like_count в films меняется в той же транзакции, что и строка в films_likes
+    private void changeLikeCount(Integer filmId, int delta) {
+        String sqlQuery = "UPDATE films SET like_count = like_count + ? WHERE film_id = ?";
+        jdbcTemplate.update(sqlQuery, delta, filmId);
+    }
+
+    // по имени нарушенного внешнего ключа определяется, какой из объектов не найден
+    private RuntimeException translateForeignKeyViolation(DataIntegrityViolationException e,
+                                                          Integer filmId, Integer userId) {
+        String message = String.valueOf(e.getMostSpecificCause().getMessage()).toUpperCase();
+        if (message.contains("FILMS_ID_FK")) {
+            return new FilmNotFoundException("Film id " + filmId + " not found");
+        }
+        if (message.contains("USER_ID_FK")) {
+            return new UserNotFoundException("Пользователь с идентификатором " + userId + " не найден");
+        }
+        return e;
+    }
 
+    private boolean checkFilmId(int id) {
+        String sql = "SELECT EXISTS(SELECT 1 FROM films WHERE film_id = ?)";
+        return jdbcTemplate.queryForObject(sql, Boolean.class, id);
     }
 }
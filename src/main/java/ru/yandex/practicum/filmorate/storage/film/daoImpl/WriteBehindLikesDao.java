@@ -0,0 +1,362 @@
+package ru.yandex.practicum.filmorate.storage.film.daoImpl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ServiceOverloadedException;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.dao.LikesDao;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Отложенная запись лайков (включается свойством filmorate.likes.write-behind.enabled).
+ * Лайк проверяется и подтверждается сразу, а в films_likes попадает пакетом при очередном сбросе:
+ * по таймеру, при накоплении batch-size изменений и при остановке приложения.
+ * Лайк и его отмена до сброса взаимно уничтожаются и в базу не пишутся.
+ * Если очередь заполнена и за offer-timeout не освободилась, запрос отклоняется с ServiceOverloadedException.
+ * Чтение лайков фильма учитывает еще не записанные изменения. После сброса увеличиваются версии
+ * измененных фильмов: списки, читающие films_likes напрямую, видят лайк только после записи.
+ */
+@Slf4j
+@Component
+@Primary
+@ConditionalOnProperty(name = "filmorate.likes.write-behind.enabled", havingValue = "true")
+public class WriteBehindLikesDao implements LikesDao {
+
+    private final LikesDaoImpl likesDao;
+    private final ObjectProvider<FilmStorage> filmStorage;
+    private final EntityVersions entityVersions;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    // желаемое состояние лайка: true — поставлен, false — снят
+    private final Map<Like, Boolean> pending = new LinkedHashMap<>();
+    // изменения, которые сейчас пишутся в базу; видны читателям до окончания записи
+    private Map<Like, Boolean> inFlight = Collections.emptyMap();
+    private boolean flushRequested;
+    // растет после каждой записи лайков в базу, защищен lock
+    private long writeGeneration;
+
+    // не synchronized: сброс ждет базу, а монитор закрепил бы виртуальный поток за потоком ОС
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private ScheduledExecutorService executor;
+
+    public WriteBehindLikesDao(LikesDaoImpl likesDao, ObjectProvider<FilmStorage> filmStorage,
+                               EntityVersions entityVersions,
+                               @Value("${filmorate.likes.write-behind.queue-capacity:10000}") int capacity,
+                               @Value("${filmorate.likes.write-behind.batch-size:500}") int batchSize,
+                               @Value("${filmorate.likes.write-behind.flush-interval-ms:200}") long flushIntervalMillis,
+                               @Value("${filmorate.likes.write-behind.offer-timeout-ms:100}") long offerTimeoutMillis) {
+        this.likesDao = likesDao;
+        this.filmStorage = filmStorage;
+        this.entityVersions = entityVersions;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "likes-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    // остановка дожидается текущего сброса и записывает все оставшиеся изменения
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Сброс лайков не завершился за 30 секунд");
+        }
+        flush();
+    }
+
+    @Override
+    public Set<Integer> getFilmLikes(Integer filmId) {
+        return withUnsavedLikes(filmId, likesDao.getFilmLikes(filmId));
+    }
+
+    @Override
+    public Set<Integer> withUnsavedLikes(Integer filmId, Set<Integer> likes) {
+        lock.lock();
+        try {
+            applyTo(likes, filmId, inFlight);
+            applyTo(likes, filmId, pending);
+        } finally {
+            lock.unlock();
+        }
+        return likes;
+    }
+
+    @Override
+    public Map<Integer, Integer> getLikeCounts() {
+        flush();
+        return likesDao.getLikeCounts();
+    }
+
+    @Override
+    public Map<Integer, List<Integer>> getAllLikedFilmIds() {
+        flush();
+        return likesDao.getAllLikedFilmIds();
+    }
+
+    @Override
+    public void addLikeToFilm(Integer filmId, Integer userId) {
+        if (!enqueue(new Like(filmId, userId), true)) {
+            throw new DuplicateKeyException("Пользователь " + userId + " уже поставил лайк фильму " + filmId);
+        }
+    }
+
+    @Override
+    public boolean deleteLikeFromFilm(Integer filmId, Integer userId) {
+        return enqueue(new Like(filmId, userId), false);
+    }
+
+    @Override
+    public boolean checkLike(Integer filmId, Integer userId) {
+        lock.lock();
+        try {
+            return currentState(new Like(filmId, userId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void applyLikeChanges(Collection<Like> addedLikes, Collection<Like> deletedLikes) {
+        likesDao.applyLikeChanges(addedLikes, deletedLikes);
+    }
+
+    // пакетная загрузка пишет напрямую, после сброса очереди, чтобы не разойтись с отложенными изменениями.
+    // Запись идет под lock: лайк из пакета не может одновременно попасть в очередь
+    @Override
+    public List<Like> addLikes(List<Like> likes) {
+        flushLock.lock();
+        try {
+            flush();
+            lock.lock();
+            try {
+                // лайки, поставленные после сброса, уже учтены очередью
+                List<Like> unqueued = new ArrayList<>(likes.size());
+                for (Like like : likes) {
+                    if (!pending.containsKey(like)) {
+                        unqueued.add(like);
+                    }
+                }
+                try {
+                    return likesDao.addLikes(unqueued);
+                } finally {
+                    writeGeneration++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public Map<Like, String> findInvalidLikes(Collection<Like> likes) {
+        return likesDao.findInvalidLikes(likes);
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<Like, Boolean> batch;
+            lock.lock();
+            try {
+                flushRequested = false;
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new LinkedHashMap<>(pending);
+                inFlight = batch;
+                pending.clear();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                write(batch);
+            } finally {
+                lock.lock();
+                try {
+                    inFlight = Collections.emptyMap();
+                    writeGeneration++;
+                } finally {
+                    lock.unlock();
+                }
+            }
+            FilmStorage storage = filmStorage.getIfAvailable();
+            batch.keySet().stream()
+                    .map(Like::getFilmId)
+                    .distinct()
+                    .forEach(filmId -> {
+                        if (storage != null) {
+                            storage.onFilmLikesChanged(filmId);
+                        }
+                        // версия растет после записи и сброса кэша, чтобы новый ETag не достался старым данным
+                        entityVersions.filmChanged(filmId);
+                    });
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // возвращает false, если лайк уже находится в нужном состоянии
+    private boolean enqueue(Like like, boolean liked) {
+        lock.lock();
+        try {
+            long deadline = System.nanoTime() + offerTimeoutNanos;
+            while (true) {
+                // состояние читается заново после каждого ожидания места: за это время очередь могла измениться
+                if (currentState(like) == liked) {
+                    return false;
+                }
+                if (pending.remove(like) != null) {
+                    // изменение отменяет еще не записанное противоположное
+                    notFull.signal();
+                    return true;
+                }
+                if (pending.size() < capacity) {
+                    pending.put(like, liked);
+                    if (pending.size() >= batchSize) {
+                        requestFlush();
+                    }
+                    return true;
+                }
+                awaitCapacity(deadline - System.nanoTime());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // вызывается под lock; на время чтения базы (заодно проверяющего фильм и пользователя) блокировка отпускается.
+    // Если за это время сброс или пакетная загрузка записали лайки, прочитанное значение могло устареть
+    private boolean currentState(Like like) {
+        while (true) {
+            long generation = writeGeneration;
+            boolean likedInDb;
+            lock.unlock();
+            try {
+                likedInDb = likesDao.checkLike(like.getFilmId(), like.getUserId());
+            } finally {
+                lock.lock();
+            }
+            if (generation == writeGeneration) {
+                return currentState(like, likedInDb);
+            }
+        }
+    }
+
+    private boolean currentState(Like like, boolean likedInDb) {
+        Boolean state = pending.get(like);
+        if (state == null) {
+            state = inFlight.get(like);
+        }
+        return state != null ? state : likedInDb;
+    }
+
+    private void awaitCapacity(long remainingNanos) {
+        requestFlush();
+        if (remainingNanos <= 0) {
+            throw new ServiceOverloadedException("очередь лайков заполнена, повторите запрос позже");
+        }
+        try {
+            notFull.awaitNanos(remainingNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("ожидание места в очереди лайков прервано");
+        }
+    }
+
+    private void requestFlush() {
+        if (!flushRequested && !executor.isShutdown()) {
+            flushRequested = true;
+            executor.execute(this::flushQuietly);
+        }
+    }
+
+    private void write(Map<Like, Boolean> batch) {
+        List<Like> added = new ArrayList<>();
+        List<Like> deleted = new ArrayList<>();
+        batch.forEach((like, liked) -> (liked ? added : deleted).add(like));
+        try {
+            likesDao.applyLikeChanges(added, deleted);
+        } catch (RuntimeException e) {
+            // пакет откатился целиком: изменения записываются по одному, чтобы потерять только ошибочные
+            log.warn("Не удалось записать пакет из {} изменений лайков, запись по одному: {}", batch.size(),
+                    e.getMessage());
+            batch.forEach((like, liked) -> {
+                try {
+                    likesDao.applyLikeChanges(liked ? List.of(like) : List.of(), liked ? List.of() : List.of(like));
+                } catch (RuntimeException likeError) {
+                    log.error("Изменение лайка {} потеряно: {}", like, likeError.getMessage());
+                }
+            });
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Ошибка при сбросе лайков", e);
+        }
+    }
+
+    private static void applyTo(Set<Integer> likes, int filmId, Map<Like, Boolean> changes) {
+        changes.forEach((like, liked) -> {
+            if (like.getFilmId() == filmId) {
+                if (liked) {
+                    likes.add(like.getUserId());
+                } else {
+                    likes.remove(like.getUserId());
+                }
+            }
+        });
+    }
+
+    // число еще не записанных изменений, для тестов и метрик
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size() + inFlight.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,18 +1,26 @@
 package ru.yandex.practicum.filmorate.storage.film.storageImpl;
 
-import org.springframework.context.annotation.Primary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.BatchedInQuery;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.dao.GenreDao;
 import ru.yandex.practicum.filmorate.storage.film.dao.LikesDao;
+import ru.yandex.practicum.filmorate.storage.film.dao.MpaDao;
 
+import javax.annotation.PostConstruct;
 import java.sql.*;
 import java.sql.Date;
 import java.time.LocalDate;
@@ -21,64 +29,103 @@ import java.util.stream.Collectors;
 
 import static java.util.function.UnaryOperator.identity;
 
+@Slf4j
 @Component
-@Primary
 public class FilmDbStorage implements FilmStorage {
 
     private final JdbcTemplate jdbcTemplate;
     private final LikesDao likesDao;
+    private final GenreDao genreDao;
+    private final MpaDao mpaDao;
 
     final LocalDate latestReleaseDate = LocalDate.of(1895, 12,28);
 
-    public FilmDbStorage(JdbcTemplate jdbcTemplate, LikesDao likesDao) {
+    // включается при старте, если база поддерживает ARRAY_AGG; без этого фильм читается по частям
+    private volatile boolean singleQueryDetails;
+
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, LikesDao likesDao, GenreDao genreDao, MpaDao mpaDao) {
         this.jdbcTemplate = jdbcTemplate;
         this.likesDao = likesDao;
+        this.genreDao = genreDao;
+        this.mpaDao = mpaDao;
+    }
+
+    // диалект проверяется один раз: ошибка запроса во время работы не должна менять способ чтения
+    @PostConstruct
+    public void detectArrayAggSupport() {
+        try {
+            jdbcTemplate.query("SELECT (SELECT ARRAY_AGG(fg.genre_id ORDER BY fg.genre_id) FROM films_genres AS fg " +
+                    "WHERE fg.film_id = f.film_id) FROM films AS f WHERE f.film_id = -1", rs -> null);
+            singleQueryDetails = true;
+        } catch (BadSqlGrammarException e) {
+            log.warn("База не поддерживает ARRAY_AGG, фильмы читаются по частям: {}", e.getMessage());
+            singleQueryDetails = false;
+        }
     }
 
     @Override
     public Collection<Film> findAll() {
-        String sqlQuery = "SELECT f.*, " +
-                "m.rating as mpa_name, " +
-                "m.description as mpa_description, " +
-                "m.rating_id as mpa_id " +
-                "FROM films as f " +
-                "JOIN mpa_ratings as m ON f.mpa_id = m.rating_id ";
+        String sqlQuery = "SELECT f.* " +
+                "FROM films as f ";
         List<Film> films = jdbcTemplate.query(sqlQuery, this::makeFilm);
-        getFilmGenres(films);
-        getFilmLikes(films);
+        fillGenresAndLikes(films);
         return films;
     }
 
-    private void getFilmGenres(List<Film> films) {
-        String inSql = String.join(",", Collections.nCopies(films.size(), "?"));
+    @Override
+    public Collection<Film> findPage(Integer afterId, Integer limit) {
+        String sqlQuery = "SELECT f.* " +
+                "FROM films as f " +
+                "WHERE f.film_id > ? " +
+                "ORDER BY f.film_id " +
+                "LIMIT ?";
+        List<Film> films = jdbcTemplate.query(sqlQuery, this::makeFilm, afterId, limit);
+        fillGenresAndLikes(films);
+        return films;
+    }
 
+    private void fillGenres(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
         final Map<Integer, Film> filmById = films.stream().collect(Collectors.toMap(Film::getId, identity()));
+        getFilmGenres(filmById, new ArrayList<>(filmById.keySet()));
+        films.forEach(film -> film.setLikes(null));
+    }
 
-        final String sqlQuery = "SELECT * " +
-                "FROM genres AS g " +
-                "INNER JOIN films_genres AS fg ON g.genre_id = fg.genre_id " +
-                "WHERE fg.film_id IN(" + inSql + ")";
-
-        jdbcTemplate.query(sqlQuery, (rs) -> {
-            final Film film = filmById.get(rs.getInt("film_id"));
-            film.getGenres().add(makeGenre(rs, films.size()));
-        }, films.stream().map(Film::getId).toArray());
+    private void fillGenresAndLikes(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        final Map<Integer, Film> filmById = films.stream().collect(Collectors.toMap(Film::getId, identity()));
+        final List<Integer> filmIds = new ArrayList<>(filmById.keySet());
+        getFilmGenres(filmById, filmIds);
+        getFilmLikes(filmById, filmIds);
     }
 
-    private void getFilmLikes(List<Film> films) {
-        String inSql = String.join(",", Collections.nCopies(films.size(), "?"));
+    private void getFilmGenres(Map<Integer, Film> filmById, List<Integer> filmIds) {
+        final String sqlQuery = "SELECT film_id, genre_id " +
+                "FROM films_genres " +
+                "WHERE film_id IN(%s) " +
+                "ORDER BY genre_id";
 
-        final Map<Integer, Film> filmById = films.stream().collect(Collectors.toMap(Film::getId, identity()));
+        BatchedInQuery.query(jdbcTemplate, sqlQuery, filmIds, (rs) -> {
+            final Film film = filmById.get(rs.getInt("film_id"));
+            film.getGenres().add(makeGenre(rs, rs.getRow()));
+        });
+    }
 
-        final String sqlQuery = "SELECT user_id FROM films_likes WHERE user_id IN(" + inSql + ")";
+    private void getFilmLikes(Map<Integer, Film> filmById, List<Integer> filmIds) {
+        final String sqlQuery = "SELECT film_id, user_id FROM films_likes WHERE film_id IN(%s)";
 
-        jdbcTemplate.query(sqlQuery, (rs) -> {
+        BatchedInQuery.query(jdbcTemplate, sqlQuery, filmIds, (rs) -> {
             final Film film = filmById.get(rs.getInt("film_id"));
-            film.getGenres().add(makeGenre(rs, films.size()));
-        }, films.stream().map(Film::getId).toArray());
+            film.getLikes().add(rs.getInt("user_id"));
+        });
     }
 
     @Override
+    @Transactional
     public Film createFilm(Film film) {
         String sqlQuery = "INSERT INTO films (name, description, release_date, duration, mpa_id)"
                 + "values (?, ?, ?, ?, ?)";
@@ -103,15 +150,69 @@ public class FilmDbStorage implements FilmStorage {
         return film;
     }
 
+    // все фильмы пачки и их жанры записываются двумя пакетными запросами в одной транзакции
     @Override
-    public Film updateFilm(Film film) {
-        if (!checkFilmId(film.getId())) {
-            throw new FilmNotFoundException("Фильм с идентификатором " + film.getId() + " не найден!");
+    @Transactional
+    public List<Film> createFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        for (Film film : films) {
+            if (film.getReleaseDate().isBefore(latestReleaseDate)) {
+                throw new ValidationException("Дата релиза должна быть не раньше 28 декабря 1895 года.");
+            }
+        }
+        String sqlQuery = "INSERT INTO films (name, description, release_date, duration, mpa_id) "
+                + "VALUES (?, ?, ?, ?, ?)";
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement stmt = connection.prepareStatement(sqlQuery, new String[]{"film_id"})) {
+                for (Film film : films) {
+                    stmt.setString(1, film.getName());
+                    stmt.setString(2, film.getDescription());
+                    stmt.setDate(3, Date.valueOf(film.getReleaseDate()));
+                    stmt.setInt(4, film.getDuration());
+                    stmt.setInt(5, film.getMpa().getId());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    for (Film film : films) {
+                        keys.next();
+                        film.setId(keys.getInt(1));
+                    }
+                }
+            }
+            return null;
+        });
+
+        List<int[]> filmGenres = new ArrayList<>();
+        for (Film film : films) {
+            if (film.getGenres() != null) {
+                for (Integer genreId : genreIdsOf(film)) {
+                    filmGenres.add(new int[]{film.getId(), genreId});
+                }
+            }
+        }
+        if (!filmGenres.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO films_genres (film_id, genre_id) VALUES (?, ?)", filmGenres,
+                    filmGenres.size(), (stmt, filmGenre) -> {
+                        stmt.setInt(1, filmGenre[0]);
+                        stmt.setInt(2, filmGenre[1]);
+                    });
         }
+        return films;
+    }
+
+    @Override
+    @Transactional
+    public Film updateFilm(Film film) {
         String sqlQuery = "UPDATE films SET name = ?, description = ?, release_date = ?, " +
                 "duration = ?, mpa_id = ? WHERE film_id = ?";
-        jdbcTemplate.update(sqlQuery, film.getName(), film.getDescription(), film.getReleaseDate(), film.getDuration(),
-                film.getMpa().getId(), film.getId());
+        int updatedFilms = jdbcTemplate.update(sqlQuery, film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), film.getMpa().getId(), film.getId());
+        if (updatedFilms == 0) {
+            throw new FilmNotFoundException("Фильм с идентификатором " + film.getId() + " не найден!");
+        }
         if (film.getGenres() == null || film.getGenres().isEmpty()) {
             deleteGenresFromFilm(film);
         } else {
@@ -121,41 +222,132 @@ public class FilmDbStorage implements FilmStorage {
         return film;
     }
 
-   @Override
+    @Override
     public Film findFilmById(Integer id) {
-       if (!checkFilmId(id)) {
-           throw new FilmNotFoundException("Фильм с идентификатором " + id + " не найден!");
-       }
-       String sqlQuery = "SELECT f.*, " +
-               "m.rating as mpa_name, " +
-               "m.description as mpa_description, " +
-               "m.rating_id as mpa_id, " +
-               "FROM films as f " +
-               "JOIN mpa_ratings as m ON f.mpa_id = m.rating_id " +
-               "WHERE film_id = ?";
-
-       Film film = jdbcTemplate.queryForObject(sqlQuery, this::makeFilm, id);
-       film.setGenres(getGenresOfFilm(id));
-       film.setLikes(likesDao.getFilmLikes(id));
-       return film;
+        return findFilmById(id, true);
     }
 
     @Override
-    public Collection<Film> findPopularFilms(Integer count) {
+    public Film findFilmSummaryById(Integer id) {
+        return findFilmById(id, false);
+    }
+
+    private Film findFilmById(Integer id, boolean withLikes) {
+        return singleQueryDetails ? findFilmDetails(id, withLikes) : findFilmByIdInParts(id, withLikes);
+    }
+
+    // фильм, идентификаторы его жанров и лайков за одно обращение к базе
+    private Film findFilmDetails(Integer id, boolean withLikes) {
         String sqlQuery = "SELECT f.*, " +
-                "m.rating as mpa_name, " +
-                "m.rating_id as mpa_id, " +
-                "m.description as mpa_description, " +
+                "(SELECT ARRAY_AGG(fg.genre_id ORDER BY fg.genre_id) " +
+                "FROM films_genres AS fg WHERE fg.film_id = f.film_id) AS genre_ids" +
+                (withLikes ? ", (SELECT ARRAY_AGG(fl.user_id) FROM films_likes AS fl " +
+                        "WHERE fl.film_id = f.film_id) AS like_ids " : " ") +
+                "FROM films AS f " +
+                "WHERE f.film_id = ?";
+
+        Film film = jdbcTemplate.query(sqlQuery, rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            Film foundFilm = makeFilm(rs, rs.getRow());
+            for (Object genreId : arrayOf(rs, "genre_ids")) {
+                foundFilm.getGenres().add(genreDao.getGenreById(((Number) genreId).intValue()));
+            }
+            if (!withLikes) {
+                foundFilm.setLikes(null);
+                return foundFilm;
+            }
+            for (Object userId : arrayOf(rs, "like_ids")) {
+                foundFilm.getLikes().add(((Number) userId).intValue());
+            }
+            return foundFilm;
+        }, id);
+        if (film == null) {
+            throw new FilmNotFoundException("Фильм с идентификатором " + id + " не найден!");
+        }
+        if (withLikes) {
+            film.setLikes(likesDao.withUnsavedLikes(id, film.getLikes()));
+        }
+        return film;
+    }
+
+    private Object[] arrayOf(ResultSet resultSet, String column) throws SQLException {
+        Array array = resultSet.getArray(column);
+        // ARRAY_AGG без строк возвращает NULL
+        return array == null ? new Object[0] : (Object[]) array.getArray();
+    }
+
+    private Film findFilmByIdInParts(Integer id, boolean withLikes) {
+        String sqlQuery = "SELECT f.* " +
                 "FROM films as f " +
-                "JOIN mpa_ratings as m ON f.mpa_id = m.rating_id " +
-                "LEFT JOIN films_likes as l ON l.film_id = f.film_id " +
-                "GROUP BY f.film_id " +
-                "ORDER BY COUNT(l.user_id) DESC " +
-                "LIMIT ?";
+                "WHERE film_id = ?";
+
+        Film film;
+        try {
+            film = jdbcTemplate.queryForObject(sqlQuery, this::makeFilm, id);
+        } catch (EmptyResultDataAccessException e) {
+            throw new FilmNotFoundException("Фильм с идентификатором " + id + " не найден!");
+        }
+        film.setGenres(getGenresOfFilm(id));
+        film.setLikes(withLikes ? likesDao.getFilmLikes(id) : null);
+        return film;
+    }
+
+    @Override
+    public Collection<Film> findFilmsByIds(List<Integer> filmIds) {
+        return findFilmsByIds(filmIds, true);
+    }
+
+    @Override
+    public Collection<Film> findFilmSummariesByIds(List<Integer> filmIds) {
+        return findFilmsByIds(filmIds, false);
+    }
+
+    private List<Film> findFilmsByIds(List<Integer> filmIds, boolean withLikes) {
+        String sqlQuery = "SELECT f.* " +
+                "FROM films as f " +
+                "WHERE f.film_id IN(%s)";
+
+        Map<Integer, Film> filmById = new HashMap<>();
+        BatchedInQuery.query(jdbcTemplate, sqlQuery, filmIds, (rs) -> {
+            Film film = makeFilm(rs, rs.getRow());
+            filmById.put(film.getId(), film);
+        });
+        // порядок результата совпадает с порядком переданных идентификаторов
+        List<Film> films = filmIds.stream()
+                .map(filmById::get)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        if (withLikes) {
+            fillGenresAndLikes(films);
+        } else {
+            fillGenres(films);
+        }
+        return films;
+    }
+
+    @Override
+    public Collection<Film> findPopularFilms(Integer count, Integer genreId, Integer year) {
+        StringBuilder sqlQuery = new StringBuilder("SELECT f.* FROM films as f ");
+        List<Object> params = new ArrayList<>();
+        if (genreId != null) {
+            // пара (film_id, genre_id) уникальна, поэтому соединение не дублирует фильмы
+            sqlQuery.append("JOIN films_genres AS fg ON fg.film_id = f.film_id AND fg.genre_id = ? ");
+            params.add(genreId);
+        }
+        if (year != null) {
+            // диапазон дат вместо EXTRACT(YEAR ...), чтобы работал индекс по release_date
+            sqlQuery.append("WHERE f.release_date >= ? AND f.release_date < ? ");
+            params.add(LocalDate.of(year, 1, 1));
+            params.add(LocalDate.of(year + 1, 1, 1));
+        }
+        sqlQuery.append("ORDER BY f.like_count DESC, f.film_id LIMIT ?");
+        params.add(count);
 
-        List<Film> films = jdbcTemplate.query(sqlQuery, this::makeFilm, count);
-        getFilmGenres(films);
-        getFilmLikes(films);
+        List<Film> films = jdbcTemplate.query(sqlQuery.toString(), this::makeFilm, params.toArray());
+        fillGenresAndLikes(films);
         return films;
     }
 
@@ -165,22 +357,55 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     public void addGenresToFilm(Film film) {
-        for (Genre genre : film.getGenres()) {
-            String setNewGenres = "INSERT INTO films_genres (film_id, genre_id) VALUES (?, ?)";
-            jdbcTemplate.update(setNewGenres, film.getId(), genre.getId());
-        }
+        insertFilmGenres(film.getId(), genreIdsOf(film));
     }
 
+    // записываются только отличия от текущего набора жанров фильма
     public void updateGenresOfFilm(Film film) {
-        String sqlQuery = "DELETE FROM films_genres WHERE film_id = ?";
-        jdbcTemplate.update(sqlQuery, film.getId());
-        addGenresToFilm(film);
+        String sqlQuery = "SELECT genre_id FROM films_genres WHERE film_id = ?";
+        Set<Integer> currentGenreIds = new HashSet<>(jdbcTemplate.queryForList(sqlQuery, Integer.class, film.getId()));
+        Set<Integer> newGenreIds = genreIdsOf(film);
+
+        List<Integer> removedGenreIds = currentGenreIds.stream()
+                .filter(genreId -> !newGenreIds.contains(genreId))
+                .collect(Collectors.toList());
+        List<Integer> addedGenreIds = newGenreIds.stream()
+                .filter(genreId -> !currentGenreIds.contains(genreId))
+                .collect(Collectors.toList());
+        deleteFilmGenres(film.getId(), removedGenreIds);
+        insertFilmGenres(film.getId(), addedGenreIds);
+    }
+
+    private void insertFilmGenres(int filmId, Collection<Integer> genreIds) {
+        if (genreIds.isEmpty()) {
+            return;
+        }
+        String sqlQuery = "INSERT INTO films_genres (film_id, genre_id) VALUES (?, ?)";
+        jdbcTemplate.batchUpdate(sqlQuery, genreIds, genreIds.size(), (stmt, genreId) -> {
+            stmt.setInt(1, filmId);
+            stmt.setInt(2, genreId);
+        });
+    }
+
+    private void deleteFilmGenres(int filmId, Collection<Integer> genreIds) {
+        if (genreIds.isEmpty()) {
+            return;
+        }
+        String sqlQuery = "DELETE FROM films_genres WHERE film_id = ? AND genre_id = ?";
+        jdbcTemplate.batchUpdate(sqlQuery, genreIds, genreIds.size(), (stmt, genreId) -> {
+            stmt.setInt(1, filmId);
+            stmt.setInt(2, genreId);
+        });
+    }
+
+    private Set<Integer> genreIdsOf(Film film) {
+        return film.getGenres().stream()
+                .map(Genre::getId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
     public Collection<Genre> getGenresOfFilm(int filmId) {
-        String sqlQuery = "SELECT * FROM genres " +
-                "INNER JOIN films_genres AS fg ON genres.genre_id = fg.genre_id " +
-                "WHERE film_id = ?";
+        String sqlQuery = "SELECT genre_id FROM films_genres WHERE film_id = ? ORDER BY genre_id";
         return jdbcTemplate.query(sqlQuery, this::makeGenre, filmId);
     }
 
@@ -191,21 +416,19 @@ public class FilmDbStorage implements FilmStorage {
                 resultSet.getString("description"),
                 resultSet.getDate("release_date").toLocalDate(),
                 resultSet.getInt("duration"),
-                new Mpa(resultSet.getInt("mpa_id"),
-                        resultSet.getString("mpa_name"),
-                        resultSet.getString("mpa_description")),
+                makeMpa(resultSet),
                 new HashSet<Integer>(), // для лайков
                 new ArrayList<Genre>()  // для жанров
         );
    }
 
-    private Genre makeGenre(ResultSet resultSet, int rowNum) throws SQLException {
-        return new Genre(resultSet.getInt("genre_id"),
-                resultSet.getString("genre_name"));
+    // рейтинг и жанры берутся из справочников в памяти, без соединения с mpa_ratings и genres
+    private Mpa makeMpa(ResultSet resultSet) throws SQLException {
+        int mpaId = resultSet.getInt("mpa_id");
+        return resultSet.wasNull() ? null : mpaDao.getMpaById(mpaId);
     }
 
-    private boolean checkFilmId(int id) {
-        String sql = "SELECT EXISTS(SELECT 1 FROM films WHERE film_id = ?)";
-        return jdbcTemplate.queryForObject(sql, Boolean.class, id);
+    private Genre makeGenre(ResultSet resultSet, int rowNum) throws SQLException {
+        return genreDao.getGenreById(resultSet.getInt("genre_id"));
     }
 }
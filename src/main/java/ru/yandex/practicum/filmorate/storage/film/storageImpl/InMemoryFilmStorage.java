@@ -7,27 +7,50 @@ import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Component
 public class InMemoryFilmStorage implements FilmStorage {
 
-    private final Map<Integer, Film> films = new HashMap<>();
-    private Integer generatorId = 0;
+    private final ConcurrentMap<Integer, Film> films = new ConcurrentHashMap<>();
+    private final AtomicInteger generatorId = new AtomicInteger();
+    // собственный рейтинг, чтобы не сортировать все фильмы на каждый запрос популярных
+    private final LikeCountOrder likeCountOrder = new LikeCountOrder();
     final LocalDate latestReleaseDate = LocalDate.of(1895, 12,28);
 
     @Override
     public Collection<Film> findAll() {
-        return films.values();
+        return new ArrayList<>(films.values());
+    }
+
+    @Override
+    public Collection<Film> findPage(Integer afterId, Integer limit) {
+        return films.values().stream()
+                .filter(film -> film.getId() > afterId)
+                .sorted(Comparator.comparing(Film::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
     }
 
     @Override
     public Film createFilm(Film film) {
         validateFilm(film);
-        film.setId(++generatorId);
+        Set<Integer> likes = ConcurrentHashMap.newKeySet();
+        if (film.getLikes() != null) {
+            likes.addAll(film.getLikes());
+        }
+        film.setLikes(likes);
+        film.setId(generatorId.incrementAndGet());
+        likeCountOrder.addFilm(film.getId(), likes.size());
         films.put(film.getId(), film);
         return film;
     }
@@ -38,27 +61,72 @@ public class InMemoryFilmStorage implements FilmStorage {
             throw new FilmNotFoundException("Такого фильма не существует!");
         }
         validateFilm(film);
-        films.put(film.getId(), film);
+        // лайки меняются только через addLike/deleteLike, поэтому обновленный фильм получает текущий набор
+        Film updated = films.computeIfPresent(film.getId(), (id, oldFilm) -> {
+            film.setLikes(oldFilm.getLikes());
+            return film;
+        });
+        if (updated == null) {
+            throw new FilmNotFoundException("Такого фильма не существует!");
+        }
         return film;
     }
 
+    public boolean addLike(Integer filmId, Integer userId) {
+        Set<Integer> likes = findFilmById(filmId).getLikes();
+        return likeCountOrder.changeLikes(filmId, () -> likes.add(userId), 1);
+    }
+
+    public boolean deleteLike(Integer filmId, Integer userId) {
+        Set<Integer> likes = findFilmById(filmId).getLikes();
+        return likeCountOrder.changeLikes(filmId, () -> likes.remove(userId), -1);
+    }
+
+    @Override
+    public void onLikeAdded(Integer filmId, Integer userId) {
+        addLike(filmId, userId);
+    }
+
+    @Override
+    public void onLikeDeleted(Integer filmId, Integer userId) {
+        deleteLike(filmId, userId);
+    }
+
     @Override
     public Film findFilmById(Integer filmId) {
-        if (films.get(filmId) != null) {
-            return films.get(filmId);
+        Film film = films.get(filmId);
+        if (film != null) {
+            return film;
         } else {
             throw new FilmNotFoundException(String.format("Фильм с id %d не найден", filmId));
         }
     }
 
     @Override
-    public Collection<Film> findPopularFilms(Integer count) {
-        Collection<Film> films = findAll();
-        return films.stream()
-                .sorted((film1, film2) -> film2.getLikes().size() - film1.getLikes().size())
-                .limit(count)
+    public Collection<Film> findFilmsByIds(List<Integer> filmIds) {
+        return filmIds.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
+    }
 
+    @Override
+    public Collection<Film> findPopularFilms(Integer count, Integer genreId, Integer year) {
+        if (genreId == null && year == null) {
+            return findFilmsByIds(likeCountOrder.findTop(count, filmId -> true));
+        }
+        return findFilmsByIds(likeCountOrder.findTop(count, filmId -> matches(films.get(filmId), genreId, year)));
+    }
+
+    private boolean matches(Film film, Integer genreId, Integer year) {
+        if (film == null) {
+            return false;
+        }
+        if (year != null && (film.getReleaseDate() == null || film.getReleaseDate().getYear() != year)) {
+            return false;
+        }
+        return genreId == null || (film.getGenres() != null && film.getGenres().stream()
+                .anyMatch(genre -> genreId.equals(genre.getId())));
     }
 
     private void validateFilm(Film film) {
@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.storage.film.storageImpl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntPredicate;
+
+// порядок фильмов по числу лайков для хранилища в памяти: поддерживается при каждом лайке,
+// поэтому запрос популярных фильмов не сортирует все фильмы
+class LikeCountOrder {
+
+    private final ConcurrentMap<Integer, Integer> likeCounts = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> order = new ConcurrentSkipListSet<>();
+
+    void addFilm(int filmId, int likeCount) {
+        likeCounts.compute(filmId, (id, oldCount) -> {
+            replaceEntry(id, oldCount, likeCount);
+            return likeCount;
+        });
+    }
+
+    // change выполняется под блокировкой ячейки фильма, поэтому набор лайков и позиция фильма меняются согласованно
+    boolean changeLikes(int filmId, BooleanSupplier change, int delta) {
+        boolean[] changed = new boolean[1];
+        likeCounts.computeIfPresent(filmId, (id, oldCount) -> {
+            if (!change.getAsBoolean()) {
+                return oldCount;
+            }
+            changed[0] = true;
+            int newCount = oldCount + delta;
+            replaceEntry(id, oldCount, newCount);
+            return newCount;
+        });
+        return changed[0];
+    }
+
+    int getLikeCount(int filmId) {
+        return likeCounts.getOrDefault(filmId, 0);
+    }
+
+    List<Integer> findTop(int count, IntPredicate filter) {
+        List<Integer> filmIds = new ArrayList<>(Math.min(count, likeCounts.size()));
+        // при переносе записи фильм на мгновение может встретиться дважды
+        Set<Integer> seen = new HashSet<>();
+        for (Entry entry : order) {
+            if (filmIds.size() >= count) {
+                break;
+            }
+            if (filter.test(entry.filmId) && seen.add(entry.filmId)) {
+                filmIds.add(entry.filmId);
+            }
+        }
+        return filmIds;
+    }
+
+    private void replaceEntry(int filmId, Integer oldCount, int newCount) {
+        // сначала добавляем новую запись: читатель не должен пропустить фильм
+        order.add(new Entry(filmId, newCount));
+        if (oldCount != null && oldCount != newCount) {
+            order.remove(new Entry(filmId, oldCount));
+        }
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        private final int filmId;
+        private final int likeCount;
+
+        private Entry(int filmId, int likeCount) {
+            this.filmId = filmId;
+            this.likeCount = likeCount;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byLikes = Integer.compare(other.likeCount, likeCount);
+            return byLikes != 0 ? byLikes : Integer.compare(filmId, other.filmId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry entry = (Entry) o;
+            return filmId == entry.filmId && likeCount == entry.likeCount;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * filmId + likeCount;
+        }
+    }
+}
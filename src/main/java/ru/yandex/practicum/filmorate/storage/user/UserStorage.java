@@ -3,15 +3,26 @@ package ru.yandex.practicum.filmorate.storage.user;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
 
 public interface UserStorage {
 
     Collection<User> findAll();
 
+    Collection<User> findPage(Integer afterId, Integer limit);
+
     User createUser(User user);
 
+    // пакетное создание для загрузки; идентификаторы проставляются в переданных пользователей
+    default List<User> createUsers(List<User> users) {
+        users.forEach(this::createUser);
+        return users;
+    }
+
     User updateUser(User user);
 
     User findUserById(Integer userId);
 
+    Collection<User> findUsersByIds(List<Integer> userIds);
+
 }
@@ -1,17 +1,27 @@
 package ru.yandex.practicum.filmorate.storage.user.dao;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 public interface FriendListDao {
 
     void addFriend(Integer userId, Integer friendId);
 
+    // пакетное добавление при загрузке; возвращает только вставленные связи, а уже существующие
+    // и ссылающиеся на несуществующих пользователей пропускает
+    List<Friendship> addFriends(List<Friendship> friendships);
+
     void deleteFriend(Integer id, Integer friendId);
 
     Collection<User> getAll(Integer id);
 
     Collection<User> getCommonFriends(Integer id, Integer otherId);
 
+    // подтвержденные друзья всех пользователей, идентификаторы друзей по возрастанию
+    Map<Integer, List<Integer>> getAllFriendIds();
+
 }
@@ -1,15 +1,23 @@
 package ru.yandex.practicum.filmorate.storage.user.daoImpl;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.dao.FriendListDao;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 @Component
@@ -25,21 +33,52 @@ public class FriendListDaoImpl implements FriendListDao {
     public void addFriend(Integer userId, Integer friendId) {
         if (Objects.equals(userId, friendId)) {
             throw new ValidationException("Id пользователей не должны совпадать!");
-        } else if (!checkUserId(userId) || !checkUserId(friendId)) {
-            throw new UserNotFoundException("Пользователь не найден");
         }
         String sqlQuery = "INSERT INTO friend_list(user_id, friend_id, confirmed)" +
                 "VALUES (?, ?, ?)";
-        jdbcTemplate.update(sqlQuery, userId, friendId, true);
+        try {
+            jdbcTemplate.update(sqlQuery, userId, friendId, true);
+        } catch (DuplicateKeyException e) {
+            throw e;
+        } catch (DataIntegrityViolationException e) {
+            // оба внешних ключа friend_list ссылаются на users
+            throw new UserNotFoundException("Пользователь не найден");
+        }
+    }
+
+    @Override
+    @Transactional
+    public List<Friendship> addFriends(List<Friendship> friendships) {
+        String sqlQuery = "INSERT INTO friend_list(user_id, friend_id, confirmed) " +
+                "SELECT u.user_id, f.user_id, TRUE FROM users AS u JOIN users AS f ON f.user_id = ? " +
+                "WHERE u.user_id = ? " +
+                "AND NOT EXISTS (SELECT 1 FROM friend_list WHERE user_id = ? AND friend_id = ?)";
+        int[][] updateCounts = jdbcTemplate.batchUpdate(sqlQuery, friendships, Math.max(1, friendships.size()),
+                (stmt, friendship) -> {
+                    stmt.setInt(1, friendship.getFriendId());
+                    stmt.setInt(2, friendship.getUserId());
+                    stmt.setInt(3, friendship.getUserId());
+                    stmt.setInt(4, friendship.getFriendId());
+                });
+        List<Friendship> added = new ArrayList<>();
+        int i = 0;
+        for (int[] batch : updateCounts) {
+            for (int count : batch) {
+                if (count > 0) {
+                    added.add(friendships.get(i));
+                }
+                i++;
+            }
+        }
+        return added;
     }
 
     @Override
     public void deleteFriend(Integer userId, Integer friendId) {
-        if (!checkUserId(userId) || !checkUserId(friendId)) {
+        String sqlQuery = "DELETE FROM friend_list WHERE user_id = ? AND friend_id = ?";
+        if (jdbcTemplate.update(sqlQuery, userId, friendId) == 0 && !checkUserIds(userId, friendId)) {
             throw new ValidationException("Введен некорректный id");
         }
-        String sqlQuery = "DELETE FROM friend_list WHERE user_id = ? AND friend_id = ?";
-        jdbcTemplate.update(sqlQuery, userId, friendId);
     }
 
     @Override
@@ -63,6 +102,17 @@ public class FriendListDaoImpl implements FriendListDao {
         return jdbcTemplate.query(sql, this::rowMapper, userId, otherId);
     }
 
+    @Override
+    public Map<Integer, List<Integer>> getAllFriendIds() {
+        String sql = "SELECT user_id, friend_id FROM friend_list WHERE confirmed = TRUE ORDER BY user_id, friend_id";
+
+        Map<Integer, List<Integer>> friendIds = new HashMap<>();
+        jdbcTemplate.query(sql, (rs) -> {
+            friendIds.computeIfAbsent(rs.getInt("user_id"), id -> new ArrayList<>()).add(rs.getInt("friend_id"));
+        });
+        return friendIds;
+    }
+
     private User rowMapper(ResultSet resultSet, int i) throws SQLException {
         return new User(resultSet.getInt("user_id"),
                 resultSet.getString("user_email"),
@@ -72,8 +122,9 @@ public class FriendListDaoImpl implements FriendListDao {
         );
     }
 
-    private boolean checkUserId(int id) {
-        String sql = "SELECT EXISTS(SELECT 1 FROM users WHERE user_id = ?)";
-        return jdbcTemplate.queryForObject(sql, Boolean.class, id);
+    // проверка нужна только когда удалять было нечего: оба пользователя проверяются одним запросом
+    private boolean checkUserIds(int userId, int friendId) {
+        String sql = "SELECT COUNT(*) FROM users WHERE user_id IN (?, ?)";
+        return jdbcTemplate.queryForObject(sql, Integer.class, userId, friendId) == 2;
     }
 }
@@ -7,25 +7,40 @@ import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 @Component
 public class InMemoryUserStorage implements UserStorage {
 
-    private final Map<Integer, User> users = new HashMap<>();
-    private Integer generatorId = 0;
+    private final ConcurrentMap<Integer, User> users = new ConcurrentHashMap<>();
+    private final AtomicInteger generatorId = new AtomicInteger();
 
     @Override
     public Collection<User> findAll() {
-        return users.values();
+        return new ArrayList<>(users.values());
+    }
+
+    @Override
+    public Collection<User> findPage(Integer afterId, Integer limit) {
+        return users.values().stream()
+                .filter(user -> user.getId() > afterId)
+                .sorted(Comparator.comparing(User::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
     }
 
     @Override
     public User createUser(User user) {
         validateUser(user);
-        user.setId(++generatorId);
+        user.setId(generatorId.incrementAndGet());
         users.put(user.getId(), user);
         return user;
     }
@@ -36,19 +51,30 @@ public class InMemoryUserStorage implements UserStorage {
             throw new UserNotFoundException("Пользователя с таким id не существует!");
         }
         validateUser(user);
-        users.put(user.getId(), user);
+        if (users.replace(user.getId(), user) == null) {
+            throw new UserNotFoundException("Пользователя с таким id не существует!");
+        }
         return user;
     }
 
     @Override
     public User findUserById(Integer userId) {
-        if (users.get(userId) != null) {
-            return users.get(userId);
+        User user = users.get(userId);
+        if (user != null) {
+            return user;
         } else {
             throw new UserNotFoundException(String.format("Пользователь с id %d не найден", userId));
         }
     }
 
+    @Override
+    public Collection<User> findUsersByIds(List<Integer> userIds) {
+        return userIds.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     private void validateUser(User user) {
         if (user.getEmail() == null || user.getEmail().isBlank()) {
             throw new ValidationException("Адрес электронной почты не может быть пустым!");
@@ -2,12 +2,15 @@ package ru.yandex.practicum.filmorate.storage.user.storageImpl;
 
 import org.springframework.context.annotation.Primary;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.BatchedInQuery;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.sql.Date;
@@ -15,6 +18,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @Component
 @Primary
@@ -31,6 +39,12 @@ public class UserDbStorage implements UserStorage {
         return jdbcTemplate.query(sqlQuery, this::rowMapper);
     }
 
+    @Override
+    public Collection<User> findPage(Integer afterId, Integer limit) {
+        String sqlQuery = "SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, this::rowMapper, afterId, limit);
+    }
+
     @Override
     public User createUser(User user) {
         checkUserName(user);
@@ -48,6 +62,36 @@ public class UserDbStorage implements UserStorage {
         return user;
     }
 
+    @Override
+    @Transactional
+    public List<User> createUsers(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        String sqlQuery = "INSERT INTO users (user_name, user_email, user_login, user_birthday) VALUES (?, ?, ?, ?)";
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement stmt = connection.prepareStatement(sqlQuery, new String[]{"user_id"})) {
+                for (User user : users) {
+                    checkUserName(user);
+                    stmt.setString(1, user.getName());
+                    stmt.setString(2, user.getEmail());
+                    stmt.setString(3, user.getLogin());
+                    stmt.setDate(4, Date.valueOf(user.getBirthday()));
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    for (User user : users) {
+                        keys.next();
+                        user.setId(keys.getInt(1));
+                    }
+                }
+            }
+            return null;
+        });
+        return users;
+    }
+
     @Override
     public User updateUser(User user) {
         String sqlQuery = "UPDATE users SET user_name = ?, user_email = ?, user_login = ?, user_birthday = ?" +
@@ -71,6 +115,23 @@ public class UserDbStorage implements UserStorage {
         }
     }
 
+    @Override
+    public Collection<User> findUsersByIds(List<Integer> userIds) {
+        String sqlQuery = "SELECT * FROM users WHERE user_id IN(%s)";
+
+        Map<Integer, User> userById = new HashMap<>();
+        BatchedInQuery.query(jdbcTemplate, sqlQuery, userIds, (rs) -> {
+            User user = rowMapper(rs, rs.getRow());
+            userById.put(user.getId(), user);
+        });
+        // порядок результата совпадает с порядком переданных идентификаторов
+        return userIds.stream()
+                .map(userById::get)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
     private User rowMapper(ResultSet resultSet, int i) throws SQLException {
         return new User(resultSet.getInt("user_id"),
                 resultSet.getString("user_email"),
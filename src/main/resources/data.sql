@@ -11,3 +11,6 @@ MERGE INTO MPA_RATINGS (RATING_ID, RATING, DESCRIPTION)
            (3, 'PG-13', 'Детям до 13 лет просмотр не желателен'),
            (4, 'R', 'Лицам до 17 лет обязательно присутствие взрослого'),
            (5, 'NC-17', 'Лицам до 18 лет просмотр запрещен');
+UPDATE films AS f
+SET like_count = (SELECT COUNT(*) FROM films_likes AS l WHERE l.film_id = f.film_id)
+WHERE like_count <> (SELECT COUNT(*) FROM films_likes AS l WHERE l.film_id = f.film_id);
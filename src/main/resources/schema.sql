@@ -20,10 +20,17 @@ CREATE TABLE IF NOT EXISTS films (
     release_date DATE,
     duration INTEGER,
     mpa_id INTEGER,
+    like_count INTEGER NOT NULL DEFAULT 0,
 
     CONSTRAINT films_mpa_fk FOREIGN KEY (mpa_id) REFERENCES MPA_RATINGS(rating_id)
   );
 
+ALTER TABLE films ADD COLUMN IF NOT EXISTS like_count INTEGER NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS films_like_count_idx ON films (like_count DESC, film_id);
+
+CREATE INDEX IF NOT EXISTS films_release_date_idx ON films (release_date);
+
 CREATE TABLE IF NOT EXISTS genres (
     genre_id INTEGER PRIMARY KEY,
     genre_name CHARACTER VARYING NOT NULL
@@ -40,6 +47,8 @@ CREATE TABLE IF NOT EXISTS films_genres (
         FOREIGN KEY (GENRE_ID) REFERENCES GENRES (GENRE_ID)
 );
 
+CREATE INDEX IF NOT EXISTS films_genres_genre_film_idx ON films_genres (genre_id, film_id);
+
 
 CREATE TABLE IF NOT EXISTS films_likes (
     film_id  INT NOT NULL,
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class ExecutionModeConfigurationTest {
+
+    private static final boolean VIRTUAL_THREADS_AVAILABLE = Runtime.version().feature() >= 21;
+
+    @Test
+    void shouldRunTasksInNamedVirtualThreads() throws Exception {
+        assumeTrue(VIRTUAL_THREADS_AVAILABLE);
+        ExecutorService executor = ExecutionModeConfiguration.newVirtualThreadExecutor("test-virtual-");
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+            assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+            assertEquals("test-virtual-0", thread.getName());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shouldNotExposeExecutorAsBean() {
+        new ApplicationContextRunner()
+                .withPropertyValues("filmorate.execution.mode=virtual")
+                .withUserConfiguration(ExecutionModeConfiguration.class)
+                .run(context -> {
+                    assertThat(context).doesNotHaveBean(Executor.class);
+                    assertThat(context).hasSingleBean(TomcatProtocolHandlerCustomizer.class);
+                });
+    }
+
+    @Test
+    void shouldFailFastBeforeJava21() {
+        assumeTrue(!VIRTUAL_THREADS_AVAILABLE);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> ExecutionModeConfiguration.newVirtualThreadExecutor("test-virtual-"));
+        assertTrue(e.getMessage().contains("Java 21"));
+    }
+}
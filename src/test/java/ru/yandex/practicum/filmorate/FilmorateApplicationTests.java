@@ -2,25 +2,58 @@ package ru.yandex.practicum.filmorate;
 
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.MpaRatingNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ServiceOverloadedException;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ImportService;
+import ru.yandex.practicum.filmorate.service.LikesIndex;
+import ru.yandex.practicum.filmorate.service.PopularityIndex;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.cache.CachedMpaDao;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.film.daoImpl.GenreDaoImpl;
 import ru.yandex.practicum.filmorate.storage.film.daoImpl.LikesDaoImpl;
 import ru.yandex.practicum.filmorate.storage.film.daoImpl.MpaDaoImpl;
+import ru.yandex.practicum.filmorate.storage.film.daoImpl.WriteBehindLikesDao;
 import ru.yandex.practicum.filmorate.storage.film.storageImpl.FilmDbStorage;
 import ru.yandex.practicum.filmorate.storage.user.daoImpl.FriendListDaoImpl;
 import ru.yandex.practicum.filmorate.storage.user.storageImpl.UserDbStorage;
 
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
@@ -37,6 +70,16 @@ class FilmorateApplicationTests {
     private final LikesDaoImpl likesStorage;
     private final MpaDaoImpl mpaDbStorage;
     private final GenreDaoImpl genreDbStorage;
+    private final CachedMpaDao cachedMpaDao;
+    private final UserService userService;
+    private final FilmService filmService;
+    private final PopularityIndex popularityIndex;
+    private final LikesIndex likesIndex;
+    private final ObjectProvider<FilmStorage> filmStorages;
+    private final ImportService importService;
+    private final EntityVersions entityVersions;
+    private final DataSource dataSource;
+    private final AtomicInteger statements = new AtomicInteger();
 
     @Test
     public void testFindAllUsers() {
@@ -155,6 +198,32 @@ class FilmorateApplicationTests {
                 .containsExactly(friend3);
     }
 
+    @Test
+    public void testUserServiceKeepsFriendGraphInSync() {
+        User user = userStorage.createUser(new User("graph1@test.com", "graph1", "Graph1", LocalDate.of(2000, 1, 1)));
+        User other = userStorage.createUser(new User("graph2@test.com", "graph2", "Graph2", LocalDate.of(2000, 1, 1)));
+        User first = userStorage.createUser(new User("graph3@test.com", "graph3", "Graph3", LocalDate.of(2000, 1, 1)));
+        User second = userStorage.createUser(new User("graph4@test.com", "graph4", "Graph4", LocalDate.of(2000, 1, 1)));
+
+        userService.addFriend(user.getId(), second.getId());
+        userService.addFriend(user.getId(), first.getId());
+        userService.addFriend(other.getId(), first.getId());
+        userService.addFriend(other.getId(), second.getId());
+
+        assertThat(userService.getFriendList(user.getId())).containsExactly(first, second);
+        assertThat(userService.getCommonFriends(user.getId(), other.getId())).containsExactly(first, second);
+
+        userService.deleteFriend(other.getId(), first.getId());
+
+        assertThat(userService.getCommonFriends(user.getId(), other.getId())).containsExactly(second);
+        assertThat(friendListDao.getCommonFriends(user.getId(), other.getId())).containsExactly(second);
+
+        // остальные тесты рассчитывают на пользователей с идентификаторами 1 и 2 без друзей
+        userService.deleteFriend(user.getId(), first.getId());
+        userService.deleteFriend(user.getId(), second.getId());
+        userService.deleteFriend(other.getId(), second.getId());
+    }
+
     @Test
     public void testFindAllFilms() {
         testCreateFilm();
@@ -206,10 +275,356 @@ class FilmorateApplicationTests {
 
     @Test
     public void testFindPopularFilms() {
-        Collection<Film> popularFilms = filmStorage.findPopularFilms(1);
+        Collection<Film> popularFilms = filmStorage.findPopularFilms(1, null, null);
         assertThat(popularFilms).hasSize(1);
     }
 
+    @Test
+    public void testFindPopularFilmsOrderedByLikeCount() {
+        Film film = filmStorage.createFilm(new Film(null, "Popular Film", "Popular Description",
+                LocalDate.of(2001, 1, 1), 100, new Mpa(1, "G", "Нет возрастных ограничений"),
+                new HashSet<>(), new LinkedHashSet<>()));
+        User fan1 = userStorage.createUser(new User("fan1@test.com", "fan1", "Fan1", LocalDate.of(1990, 1, 1)));
+        User fan2 = userStorage.createUser(new User("fan2@test.com", "fan2", "Fan2", LocalDate.of(1990, 1, 1)));
+        User fan3 = userStorage.createUser(new User("fan3@test.com", "fan3", "Fan3", LocalDate.of(1990, 1, 1)));
+        likesStorage.addLikeToFilm(film.getId(), fan1.getId());
+        likesStorage.addLikeToFilm(film.getId(), fan2.getId());
+        likesStorage.addLikeToFilm(film.getId(), fan3.getId());
+        likesStorage.deleteLikeFromFilm(film.getId(), fan3.getId());
+
+        List<Film> popularFilms = new ArrayList<>(filmStorage.findPopularFilms(100, null, null));
+        assertThat(popularFilms).extracting(popular -> popular.getLikes().size())
+                .isSortedAccordingTo(Comparator.reverseOrder());
+        assertThat(popularFilms).filteredOn(popular -> popular.getId().equals(film.getId()))
+                .singleElement()
+                .satisfies(popular -> assertThat(popular.getLikes())
+                        .containsExactlyInAnyOrder(fan1.getId(), fan2.getId()));
+    }
+
+    @Test
+    public void testConcurrentLikesAndUnlikesKeepIndexesInSyncWithLikeCount() throws Exception {
+        Film film = filmStorage.createFilm(new Film(null, "Contended Film", "Contended Description",
+                LocalDate.of(2004, 4, 4), 100, new Mpa(1, "G", "Нет возрастных ограничений"),
+                new HashSet<>(), new LinkedHashSet<>()));
+        List<User> fans = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            fans.add(userStorage.createUser(new User("contended" + i + "@test.com", "contended" + i, "Contended",
+                    LocalDate.of(1990, 1, 1))));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                Integer userId = fans.get(i % fans.size()).getId();
+                tasks.add(executor.submit(() -> {
+                    if (ThreadLocalRandom.current().nextBoolean()) {
+                        try {
+                            filmService.addLike(film.getId(), userId);
+                        } catch (DuplicateKeyException e) {
+                            // лайк уже поставлен другим потоком
+                        }
+                    } else {
+                        filmService.deleteLike(film.getId(), userId);
+                    }
+                }));
+            }
+            for (Future<?> future : tasks) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Set<Integer> likes = likesStorage.getFilmLikes(film.getId());
+        assertThat(likesStorage.getLikeCounts().get(film.getId())).isEqualTo(likes.size());
+        assertThat(popularityIndex.getLikeCount(film.getId())).isEqualTo(likes.size());
+        assertThat(likesIndex.getLikerIds(film.getId()))
+                .containsExactlyInAnyOrder(likes.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    @Test
+    public void testWriteBehindLikesAreCoalescedAndFlushed() throws InterruptedException {
+        Film film = filmStorage.createFilm(new Film(null, "Buffered Film", "Buffered Description",
+                LocalDate.of(2003, 3, 3), 100, new Mpa(1, "G", "Нет возрастных ограничений"),
+                new HashSet<>(), new LinkedHashSet<>()));
+        User first = userStorage.createUser(new User("buffered1@test.com", "buffered1", "Buffered1",
+                LocalDate.of(1990, 1, 1)));
+        User second = userStorage.createUser(new User("buffered2@test.com", "buffered2", "Buffered2",
+                LocalDate.of(1990, 1, 1)));
+        User third = userStorage.createUser(new User("buffered3@test.com", "buffered3", "Buffered3",
+                LocalDate.of(1990, 1, 1)));
+        // сброс только вручную, без ожидания места в очереди
+        WriteBehindLikesDao writeBehind = new WriteBehindLikesDao(likesStorage, filmStorages, entityVersions,
+                2, 100, 60_000, 0);
+        writeBehind.start();
+        try {
+            writeBehind.addLikeToFilm(film.getId(), first.getId());
+            writeBehind.addLikeToFilm(film.getId(), second.getId());
+            assertTrue(writeBehind.deleteLikeFromFilm(film.getId(), second.getId()));
+            assertFalse(writeBehind.deleteLikeFromFilm(film.getId(), second.getId()));
+            assertThrows(DuplicateKeyException.class, () -> writeBehind.addLikeToFilm(film.getId(), first.getId()));
+            assertThrows(UserNotFoundException.class, () -> writeBehind.addLikeToFilm(film.getId(), 9999));
+
+            assertEquals(1, writeBehind.getPendingCount());
+            assertThat(writeBehind.getFilmLikes(film.getId())).containsExactly(first.getId());
+            assertThat(likesStorage.getFilmLikes(film.getId())).isEmpty();
+
+            // заполненная очередь запрашивает фоновый сброс, поэтому версия запоминается заранее
+            long catalogVersion = entityVersions.getVersion(EntityVersions.Resource.CATALOG, 0);
+            writeBehind.addLikeToFilm(film.getId(), second.getId());
+            assertThatThrownBy(() -> writeBehind.addLikeToFilm(film.getId(), third.getId()))
+                    .isInstanceOf(ServiceOverloadedException.class);
+
+            writeBehind.flush();
+            assertEquals(0, writeBehind.getPendingCount());
+            assertThat(entityVersions.getVersion(EntityVersions.Resource.CATALOG, 0)).isGreaterThan(catalogVersion);
+            assertThat(likesStorage.getFilmLikes(film.getId()))
+                    .containsExactlyInAnyOrder(first.getId(), second.getId());
+            assertEquals(2, likesStorage.getLikeCounts().get(film.getId()));
+
+            assertTrue(writeBehind.deleteLikeFromFilm(film.getId(), first.getId()));
+            writeBehind.addLikeToFilm(film.getId(), third.getId());
+        } finally {
+            writeBehind.shutdown();
+        }
+        // остановка записывает оставшиеся изменения
+        assertThat(likesStorage.getFilmLikes(film.getId()))
+                .containsExactlyInAnyOrder(second.getId(), third.getId());
+        assertEquals(2, likesStorage.getLikeCounts().get(film.getId()));
+    }
+
+    @Test
+    public void testWriteBehindRereadsLikeWrittenByConcurrentFlush() throws InterruptedException {
+        Film film = filmStorage.createFilm(new Film(null, "Raced Film", "Raced Description",
+                LocalDate.of(2003, 3, 3), 100, new Mpa(1, "G", "Нет возрастных ограничений"),
+                new HashSet<>(), new LinkedHashSet<>()));
+        User user = userStorage.createUser(new User("raced@test.com", "raced", "Raced",
+                LocalDate.of(1990, 1, 1)));
+        LikesDaoImpl racedStorage = Mockito.mock(LikesDaoImpl.class, AdditionalAnswers.delegatesTo(likesStorage));
+        WriteBehindLikesDao writeBehind = new WriteBehindLikesDao(racedStorage, filmStorages, entityVersions,
+                10, 100, 60_000, 0);
+        writeBehind.start();
+        try {
+            writeBehind.addLikeToFilm(film.getId(), user.getId());
+            // сброс завершается, пока отмена лайка читает его состояние из базы
+            Mockito.doAnswer(invocation -> {
+                boolean liked = likesStorage.checkLike(film.getId(), user.getId());
+                writeBehind.flush();
+                return liked;
+            }).when(racedStorage).checkLike(film.getId(), user.getId());
+
+            assertTrue(writeBehind.deleteLikeFromFilm(film.getId(), user.getId()));
+            assertThat(writeBehind.getFilmLikes(film.getId())).isEmpty();
+        } finally {
+            writeBehind.shutdown();
+        }
+        assertThat(likesStorage.getFilmLikes(film.getId())).isEmpty();
+    }
+
+    @Test
+    public void testBatchImportReportsPerRecordErrors() throws IOException {
+        ImportResult films = importService.importFilms(ndjson(
+                "{\"name\":\"Пакетный первый\",\"description\":\"d\",\"releaseDate\":\"2001-01-01\"," +
+                        "\"duration\":90,\"mpa\":{\"id\":1},\"genres\":[{\"id\":1},{\"id\":2}]}",
+                "{\"name\":\"Пакетный второй\",\"releaseDate\":\"2002-01-01\",\"duration\":90,\"mpa\":{\"id\":2}}",
+                "{не json",
+                "",
+                "{\"name\":\"Пакетный ранний\",\"releaseDate\":\"1800-01-01\",\"duration\":90,\"mpa\":{\"id\":1}}",
+                "{\"name\":\"Пакетный без рейтинга\",\"releaseDate\":\"2003-01-01\",\"duration\":90," +
+                        "\"mpa\":{\"id\":99}}"));
+        assertEquals(2, films.getImported());
+        assertEquals(3, films.getFailed());
+        assertThat(films.getErrors()).extracting(error -> error.getLine()).containsExactly(3, 5, 6);
+        List<Film> importedFilms = new ArrayList<>(filmService.searchFilms("пакетный", "title", 10));
+        assertThat(importedFilms).extracting(Film::getName)
+                .containsExactlyInAnyOrder("Пакетный первый", "Пакетный второй");
+        Film first = importedFilms.stream().filter(film -> film.getName().equals("Пакетный первый")).findFirst()
+                .orElseThrow();
+        assertThat(filmStorage.findFilmById(first.getId()).getGenres()).extracting(Genre::getId)
+                .containsExactly(1, 2);
+
+        ImportResult users = importService.importUsers(ndjson(
+                "{\"email\":\"batch1@test.com\",\"login\":\"batch1\",\"birthday\":\"1990-01-01\"}",
+                "{\"email\":\"batch2@test.com\",\"login\":\"batch2\",\"birthday\":\"1990-01-01\"}",
+                "{\"email\":\"batch1@test.com\",\"login\":\"batch3\",\"birthday\":\"1990-01-01\"}",
+                "{\"email\":\"not-an-email\",\"login\":\"batch4\",\"birthday\":\"1990-01-01\"}"));
+        assertEquals(2, users.getImported());
+        assertThat(users.getErrors()).extracting(error -> error.getLine()).containsExactly(3, 4);
+        List<Integer> userIds = userStorage.findAll().stream()
+                .filter(user -> user.getEmail().startsWith("batch"))
+                .map(User::getId)
+                .collect(Collectors.toList());
+        assertThat(userIds).hasSize(2);
+        assertThat(userStorage.findUserById(userIds.get(0)).getName()).isEqualTo("batch1");
+
+        ImportResult likes = importService.importLikes(ndjson(
+                like(first.getId(), userIds.get(0)),
+                like(first.getId(), userIds.get(1)),
+                like(first.getId(), userIds.get(1)),
+                like(99999, userIds.get(0))));
+        assertEquals(2, likes.getImported());
+        assertEquals(1, likes.getSkipped());
+        assertThat(likes.getErrors()).extracting(error -> error.getLine()).containsExactly(4);
+        assertThat(filmStorage.findFilmById(first.getId()).getLikes()).containsExactlyInAnyOrderElementsOf(userIds);
+        assertEquals(2, likesStorage.getLikeCounts().get(first.getId()));
+
+        ImportResult friendships = importService.importFriendships(ndjson(
+                "{\"userId\":" + userIds.get(0) + ",\"friendId\":" + userIds.get(1) + "}",
+                "{\"userId\":" + userIds.get(0) + ",\"friendId\":" + userIds.get(0) + "}",
+                "{\"userId\":" + userIds.get(0) + ",\"friendId\":99999}"));
+        assertEquals(1, friendships.getImported());
+        assertEquals(2, friendships.getFailed());
+        assertThat(userService.getFriendList(userIds.get(0))).extracting(User::getId)
+                .containsExactly(userIds.get(1));
+    }
+
+    private static InputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String like(int filmId, int userId) {
+        return "{\"filmId\":" + filmId + ",\"userId\":" + userId + "}";
+    }
+
+    @Test
+    public void testFindPopularFilmsByGenreAndYear() {
+        Mpa mpa = new Mpa(1, "G", "Нет возрастных ограничений");
+        Film quiet = filmService.createFilm(new Film(null, "Quiet 1971", "Description", LocalDate.of(1971, 3, 1), 90,
+                mpa, new HashSet<>(), new LinkedHashSet<>(List.of(new Genre(6, "Боевик")))));
+        Film loud = filmService.createFilm(new Film(null, "Loud 1971", "Description", LocalDate.of(1971, 9, 1), 90,
+                mpa, new HashSet<>(), new LinkedHashSet<>(List.of(new Genre(6, "Боевик")))));
+        Film comedy = filmService.createFilm(new Film(null, "Comedy 1971", "Description", LocalDate.of(1971, 5, 1), 90,
+                mpa, new HashSet<>(), new LinkedHashSet<>(List.of(new Genre(1, "Комедия")))));
+        Film later = filmService.createFilm(new Film(null, "Action 1972", "Description", LocalDate.of(1972, 1, 1), 90,
+                mpa, new HashSet<>(), new LinkedHashSet<>(List.of(new Genre(6, "Боевик")))));
+        User viewer1 = userStorage.createUser(new User("viewer1@test.com", "viewer1", "Viewer1",
+                LocalDate.of(1990, 1, 1)));
+        User viewer2 = userStorage.createUser(new User("viewer2@test.com", "viewer2", "Viewer2",
+                LocalDate.of(1990, 1, 1)));
+        filmService.addLike(loud.getId(), viewer1.getId());
+        filmService.addLike(loud.getId(), viewer2.getId());
+        filmService.addLike(later.getId(), viewer1.getId());
+        filmService.addLike(comedy.getId(), viewer1.getId());
+
+        assertThat(filmService.getPopularFilms(10, 6, 1971)).extracting(Film::getId)
+                .containsExactly(loud.getId(), quiet.getId());
+        assertThat(filmStorage.findPopularFilms(10, 6, 1971)).extracting(Film::getId)
+                .containsExactly(loud.getId(), quiet.getId());
+        assertThat(filmService.getPopularFilms(10, null, 1971)).extracting(Film::getId)
+                .containsExactly(loud.getId(), comedy.getId(), quiet.getId());
+
+        // после смены жанра фильм переходит в другой рейтинг вместе со своими лайками
+        loud.setGenres(new LinkedHashSet<>(List.of(new Genre(1, "Комедия"))));
+        filmService.updateFilm(loud);
+
+        assertThat(filmService.getPopularFilms(10, 6, 1971)).extracting(Film::getId)
+                .containsExactly(quiet.getId());
+        assertThat(filmService.getPopularFilms(1, 1, 1971)).extracting(Film::getId)
+                .containsExactly(loud.getId());
+    }
+
+    @Test
+    public void testFindFilmsByIdsFillsGenresInBatches() {
+        List<Integer> filmIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Film film = new Film(null, "Batch Film " + i, "Batch Description", LocalDate.of(2002, 1, 1), 90,
+                    new Mpa(1, "G", "Нет возрастных ограничений"), new HashSet<>(),
+                    new LinkedHashSet<>(List.of(new Genre(2, "Драма"), new Genre(1, "Комедия"))));
+            filmIds.add(filmStorage.createFilm(film).getId());
+        }
+        Collections.reverse(filmIds);
+
+        List<Film> films = new ArrayList<>(filmStorage.findFilmsByIds(filmIds));
+        assertThat(films).extracting(Film::getId).containsExactlyElementsOf(filmIds);
+        assertThat(films).allSatisfy(film -> assertThat(film.getGenres())
+                .extracting(Genre::getId).containsExactly(1, 2));
+    }
+
+    @Test
+    public void testFindFilmByIdReadsGenresAndLikesInOneStatement() {
+        Film film = createDetailFilm();
+        FilmDbStorage countingStorage = countingFilmStorage();
+        countingStorage.detectArrayAggSupport();
+        statements.set(0);
+
+        assertDetailFilm(countingStorage.findFilmById(film.getId()));
+        assertEquals(1, statements.get());
+    }
+
+    @Test
+    public void testFindFilmByIdInPartsWithoutArrayAggSupport() {
+        Film film = createDetailFilm();
+        // без проверки диалекта при старте хранилище читает фильм и жанры отдельными запросами,
+        // а лайки — через LikesDao, мимо счетчика
+        FilmDbStorage countingStorage = countingFilmStorage();
+
+        assertDetailFilm(countingStorage.findFilmById(film.getId()));
+        assertEquals(2, statements.get());
+        assertThat(countingStorage.findFilmSummaryById(film.getId()).getLikes()).isNull();
+    }
+
+    private Film createDetailFilm() {
+        Film film = filmStorage.createFilm(new Film(null, "Detail Film", "Detail Description",
+                LocalDate.of(2003, 1, 1), 95, new Mpa(2, "PG", null), new HashSet<>(),
+                new LinkedHashSet<>(List.of(new Genre(3, "Мультфильм"), new Genre(1, "Комедия")))));
+        likesStorage.addLikeToFilm(film.getId(), 1);
+        likesStorage.addLikeToFilm(film.getId(), 2);
+        return film;
+    }
+
+    private void assertDetailFilm(Film found) {
+        assertThat(found.getMpa().getId()).isEqualTo(2);
+        assertThat(found.getGenres()).extracting(Genre::getId).containsExactly(1, 3);
+        assertThat(found.getLikes()).containsExactlyInAnyOrder(1, 2);
+    }
+
+    // хранилище, считающее подготовленные своим JdbcTemplate запросы; справочники читаются мимо счетчика
+    private FilmDbStorage countingFilmStorage() {
+        DataSource countingDataSource = new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection connection = super.getConnection();
+                return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                        new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                            if (method.getName().startsWith("prepare") || method.getName().equals("createStatement")) {
+                                statements.incrementAndGet();
+                            }
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        });
+            }
+        };
+        return new FilmDbStorage(new JdbcTemplate(countingDataSource), likesStorage, genreDbStorage, mpaDbStorage);
+    }
+
+    @Test
+    public void testFilmSummariesCarryLikeCountInsteadOfLikes() {
+        Film film = filmService.createFilm(new Film(null, "Summary Film", "Summary Description",
+                LocalDate.of(2004, 1, 1), 95, new Mpa(1, "G", null), new HashSet<>(),
+                new LinkedHashSet<>(List.of(new Genre(2, "Драма")))));
+        User user = userStorage.createUser(new User("summary@test.com", "summary", "Summary",
+                LocalDate.of(1990, 1, 1)));
+        filmService.addLike(film.getId(), user.getId());
+
+        Film stored = filmStorage.findFilmSummaryById(film.getId());
+        assertThat(stored.getLikes()).isNull();
+        assertThat(stored.getGenres()).extracting(Genre::getId).containsExactly(2);
+        assertThat(filmStorage.findFilmSummariesByIds(List.of(film.getId())))
+                .allSatisfy(summary -> assertThat(summary.getLikes()).isNull());
+
+        Film summary = filmService.findFilmSummaryById(film.getId());
+        assertThat(summary.getLikes()).isNull();
+        assertThat(summary.getLikeCount()).isEqualTo(1);
+        assertThat(filmService.findFilmById(film.getId()).getLikes()).containsExactly(user.getId());
+        assertThat(filmService.getPopularFilmSummaries(1000, null, null))
+                .filteredOn(popular -> popular.getId().equals(film.getId()))
+                .singleElement()
+                .satisfies(popular -> assertThat(popular.getLikeCount()).isEqualTo(1));
+    }
+
     @Test
     void testGetFilmLikes() {
         likesStorage.addLikeToFilm(1,1);
@@ -237,6 +652,19 @@ class FilmorateApplicationTests {
                 () -> likesStorage.deleteLikeFromFilm(invalidFilmId, userId));
     }
 
+    @Test
+    void testAddLikeWithUnknownUserThrowsUserNotFoundException() {
+        assertThrows(UserNotFoundException.class, () -> likesStorage.addLikeToFilm(1, 999));
+    }
+
+    @Test
+    public void testUpdateUnknownFilmThrowsFilmNotFoundException() {
+        Film film = new Film(999, "Unknown Film", "Unknown Description", LocalDate.of(2000, 1, 1),
+                100, new Mpa(1, "G", "Нет возрастных ограничений"), new HashSet<>(), new LinkedHashSet<>());
+        assertThrows(FilmNotFoundException.class, () -> filmStorage.updateFilm(film));
+        assertThrows(FilmNotFoundException.class, () -> filmStorage.findFilmById(999));
+    }
+
     @Test
     public void testGetAllGenres() {
         Collection<Genre> genres = genreDbStorage.getAllGenres();
@@ -265,6 +693,19 @@ class FilmorateApplicationTests {
         assertThat(film.getGenres()).isNotEmpty();
     }
 
+    @Test
+    public void testUpdateFilmGenresWritesOnlyDifference() {
+        Film film = filmStorage.createFilm(new Film(null, "Genre Film", "Genre Description",
+                LocalDate.of(2003, 1, 1), 95, new Mpa(1, "G", "Нет возрастных ограничений"), new HashSet<>(),
+                new LinkedHashSet<>(List.of(new Genre(1, "Комедия"), new Genre(2, "Драма"), new Genre(1, "Комедия")))));
+        film.setGenres(new LinkedHashSet<>(List.of(new Genre(2, "Драма"), new Genre(3, "Мультфильм"))));
+        filmStorage.updateFilm(film);
+
+        assertThat(filmStorage.getGenresOfFilm(film.getId()))
+                .extracting(Genre::getId)
+                .containsExactlyInAnyOrder(2, 3);
+    }
+
     @Test
     public void testGetAllMpa() {
         Collection<Mpa> mpaRatings = mpaDbStorage.getAllMpa();
@@ -278,6 +719,16 @@ class FilmorateApplicationTests {
         assertEquals("G", mpa.getName());
         assertEquals("Нет возрастных ограничений", mpa.getDescription());
     }
-}
-
 
+    @Test
+    public void testCachedMpaCountsHitsAndMisses() {
+        long hitsBefore = cachedMpaDao.getStats().getHits();
+        Mpa mpa = cachedMpaDao.getMpaById(3);
+
+        assertEquals("PG-13", mpa.getName());
+        assertEquals(hitsBefore + 1, cachedMpaDao.getStats().getHits());
+        assertThatThrownBy(() -> cachedMpaDao.getMpaById(99))
+                .isInstanceOf(MpaRatingNotFoundException.class);
+        assertThat(cachedMpaDao.getStats().getMisses()).isPositive();
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// профиль prod с базой в памяти: проверяются настройки H2 из URL и метрики пула
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:prod-profile;${filmorate.h2.options}")
+@ActiveProfiles("prod")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ProdProfileTests {
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Test
+    public void testH2SettingsAreApplied() {
+        assertThat(setting("CACHE_SIZE")).isEqualTo("65536");
+        assertThat(setting("QUERY_CACHE_SIZE")).isEqualTo("64");
+    }
+
+    @Test
+    public void testPoolMetricsArePublished() {
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Integer.class);
+
+        assertThat(meterRegistry.get("hikaricp.connections.active").tag("pool", "filmorate").gauge()).isNotNull();
+        assertThat(meterRegistry.get("hikaricp.connections.idle").tag("pool", "filmorate").gauge()).isNotNull();
+        assertThat(meterRegistry.get("hikaricp.connections.pending").tag("pool", "filmorate").gauge()).isNotNull();
+        Timer acquire = meterRegistry.get("hikaricp.connections.acquire").tag("pool", "filmorate").timer();
+        assertThat(acquire.count()).isPositive();
+        assertThat(acquire.takeSnapshot().histogramCounts()).isNotEmpty();
+    }
+
+    private String setting(String name) {
+        return jdbcTemplate.queryForObject(
+                "SELECT SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS WHERE SETTING_NAME = ?", String.class, name);
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class CacheControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldInvalidateKnownCacheAndAnswerNotFoundForUnknownOne() throws Exception {
+        mockMvc.perform(delete("/cache/films"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/cache/unknown"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+class ConditionalGetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void shouldAnswerNotModifiedUntilFilmChanges() throws Exception {
+        Film film = filmService.createFilm(new Film(null, "ETag Film", "ETag Description",
+                LocalDate.of(2001, 1, 1), 100, new Mpa(1, "G", null), new HashSet<>(), new ArrayList<>()));
+        User user = userService.createUser(new User("etag@test.com", "etag", "ETag", LocalDate.of(1990, 1, 1)));
+        String path = "/films/" + film.getId();
+
+        String etag = mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        String popularEtag = mockMvc.perform(get("/films/popular"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        filmService.addLike(film.getId(), user.getId());
+
+        String newEtag = mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(newEtag).isNotEqualTo(etag);
+        mockMvc.perform(get("/films/popular").header(HttpHeaders.IF_NONE_MATCH, popularEtag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldServeReferenceDataConditionallyAndSkipEtagOnErrors() throws Exception {
+        String etag = mockMvc.perform(get("/genres"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/genres").header(HttpHeaders.IF_NONE_MATCH, "W/" + etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/films/999999"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+}
@@ -1,26 +1,48 @@
 package ru.yandex.practicum.filmorate.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FilteredPopularityIndex;
+import ru.yandex.practicum.filmorate.service.LikesIndex;
+import ru.yandex.practicum.filmorate.service.PopularityIndex;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
 import ru.yandex.practicum.filmorate.storage.film.daoImpl.LikesDaoImpl;
 import ru.yandex.practicum.filmorate.storage.film.storageImpl.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.storageImpl.InMemoryUserStorage;
 
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class FilmControllerTest {
+
+    private FilmController createFilmController() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        LikesDaoImpl likesDao = new LikesDaoImpl(new JdbcTemplate());
+        RecommendationService recommendationService = new RecommendationService(new LikesIndex(), likesDao,
+                filmStorage, new InMemoryUserStorage(), 20, 10000);
+        EntityVersions entityVersions = new EntityVersions();
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        return new FilmController(new FilmService(filmStorage, likesDao, new PopularityIndex(),
+                new FilteredPopularityIndex(), recommendationService, new FilmSearchIndex(), entityVersions),
+                objectMapper, new SerializedResponseCache(objectMapper, entityVersions, 256, 1 << 20));
+    }
+
     @Test
     void shouldCreateFilm() {
         Film film = new Film("Home alone", "Christmas film",
                 LocalDate.of(1990, 11, 10), 90);
-        FilmController filmController = new FilmController(new FilmService(new InMemoryFilmStorage(),
-                new LikesDaoImpl(new JdbcTemplate())));
+        FilmController filmController = createFilmController();
         filmController.createFilm(film);
         final Collection<Film> films = filmController.findAll();
         assertNotNull(films, "Список фильмов пуст.");
@@ -31,8 +53,7 @@ public class FilmControllerTest {
     void shouldNotCreateFilmWithEmptyName() {
         Film film = new Film(null, "Christmas film",
                 LocalDate.of(1990, 11, 10), 90);
-        FilmController filmController = new FilmController(new FilmService(new InMemoryFilmStorage(),
-                new LikesDaoImpl(new JdbcTemplate())));
+        FilmController filmController = createFilmController();
         final Collection<Film> films = filmController.findAll();
         assertThrows(ValidationException.class, () -> filmController.createFilm(film));
         assertEquals(0, films.size());
@@ -44,8 +65,7 @@ public class FilmControllerTest {
                 "Paris, gathering at Kate and Peter's home in a Chicago suburb on the night before their departure. " +
                 "Kate and Peter's youngest son, Kevin, is the subject of ridicule by his older siblings and cousins. ",
                 LocalDate.of(1990, 11, 10), 90);
-        FilmController filmController = new FilmController(new FilmService(new InMemoryFilmStorage(),
-                new LikesDaoImpl(new JdbcTemplate())));
+        FilmController filmController = createFilmController();
         final Collection<Film> films = filmController.findAll();
         assertThrows(ValidationException.class, () -> filmController.createFilm(film));
         assertEquals(0, films.size());
@@ -55,8 +75,7 @@ public class FilmControllerTest {
     void shouldNotCreateFilmWithBadReleaseDate() {
         Film film = new Film("Home alone", "Christmas film",
                 LocalDate.of(1890, 11, 10), 90);
-        FilmController filmController = new FilmController(new FilmService(new InMemoryFilmStorage(),
-                new LikesDaoImpl(new JdbcTemplate())));
+        FilmController filmController = createFilmController();
         final Collection<Film> films = filmController.findAll();
         assertThrows(ValidationException.class, () -> filmController.createFilm(film));
         assertEquals(0, films.size());
@@ -66,8 +85,7 @@ public class FilmControllerTest {
     void shouldNotCreateFilmWithBadDuration() {
         Film film = new Film("Home alone", "Christmas film",
                 LocalDate.of(1990, 11, 10), -90);
-        FilmController filmController = new FilmController(new FilmService(new InMemoryFilmStorage(),
-                new LikesDaoImpl(new JdbcTemplate())));
+        FilmController filmController = createFilmController();
         final Collection<Film> films = filmController.findAll();
         assertThrows(ValidationException.class, () -> filmController.createFilm(film));
         assertEquals(0, films.size());
@@ -79,8 +97,7 @@ public class FilmControllerTest {
     void shouldUpdateFilm() {
         Film film = new Film("Home alone", "Christmas film",
                 LocalDate.of(1990, 11, 10), 90);
-        FilmController filmController = new FilmController(new FilmService(new InMemoryFilmStorage(),
-                new LikesDaoImpl(new JdbcTemplate())));
+        FilmController filmController = createFilmController();
         filmController.createFilm(film);
         Film updatedFilm = new Film(1, "UPD Home alone", "Christmas film",
                 LocalDate.of(1990, 11, 10), 90);
@@ -94,8 +111,7 @@ public class FilmControllerTest {
     void shouldNotUpdateFilmWithEmptyName() {
         Film film = new Film("Home alone", "Christmas film",
                 LocalDate.of(1990, 11, 10), 90);
-        FilmController filmController = new FilmController(new FilmService(new InMemoryFilmStorage(),
-                new LikesDaoImpl(new JdbcTemplate())));
+        FilmController filmController = createFilmController();
         filmController.createFilm(film);
 
         assertThrows(ValidationException.class, () -> filmController.updateFilm(new Film(1, null,
@@ -106,8 +122,7 @@ public class FilmControllerTest {
     void shouldNotUpdateFilmWithLongDescription() {
         Film film = new Film("Home alone", "Christmas film",
                 LocalDate.of(1990, 11, 10), 90);
-        FilmController filmController = new FilmController(new FilmService(new InMemoryFilmStorage(),
-                new LikesDaoImpl(new JdbcTemplate())));
+        FilmController filmController = createFilmController();
         filmController.createFilm(film);
 
         assertThrows(ValidationException.class, () -> filmController.updateFilm(new Film(1, "Home alone",
@@ -121,8 +136,7 @@ public class FilmControllerTest {
     void shouldNotUpdateFilmWithBadReleaseDate() {
         Film film = new Film("Home alone", "Christmas film",
                 LocalDate.of(1990, 11, 10), 90);
-        FilmController filmController = new FilmController(new FilmService(new InMemoryFilmStorage(),
-                new LikesDaoImpl(new JdbcTemplate())));
+        FilmController filmController = createFilmController();
         filmController.createFilm(film);
 
         assertThrows(ValidationException.class, () -> filmController.updateFilm(new Film(1, "Home alone",
@@ -133,12 +147,44 @@ public class FilmControllerTest {
     void shouldNotUpdateFilmWithBadDuration() {
         Film film = new Film("Home alone", "Christmas film",
                 LocalDate.of(1990, 11, 10), 90);
-        FilmController filmController = new FilmController(new FilmService(new InMemoryFilmStorage(),
-                new LikesDaoImpl(new JdbcTemplate())));
+        FilmController filmController = createFilmController();
         filmController.createFilm(film);
 
         assertThrows(ValidationException.class, () -> filmController.updateFilm(new Film(1, "Home alone",
                 "Christmas film", LocalDate.of(1990, 11, 10), -90)));
     }
-}
 
+    @Test
+    void shouldReturnFilmsPageAfterId() {
+        FilmController filmController = createFilmController();
+        for (int i = 1; i <= 3; i++) {
+            filmController.createFilm(new Film("Film " + i, "Description",
+                    LocalDate.of(1990, 11, 10), 90));
+        }
+        final Collection<Film> page = filmController.findPage(1, 1);
+        assertEquals(1, page.size());
+        assertEquals(2, page.iterator().next().getId());
+        assertThrows(ValidationException.class, () -> filmController.findPage(0, 0));
+    }
+
+    @Test
+    void shouldSearchFilmsByTitleAndDescription() {
+        FilmController filmController = createFilmController();
+        Film alone = filmController.createFilm(new Film("Один дома", "Рождественская комедия",
+                LocalDate.of(1990, 11, 10), 90));
+        Film yolka = filmController.createFilm(new Film("Ёлки", "Комедия о новогоднем чуде",
+                LocalDate.of(2010, 12, 16), 90));
+        filmController.createFilm(new Film("Брат", "Криминальная драма", LocalDate.of(1997, 12, 12), 96));
+
+        assertEquals(List.of(yolka.getId()), ids(filmController.searchFilms("елк", "title", 10, "full")));
+        assertEquals(List.of(alone.getId(), yolka.getId()),
+                ids(filmController.searchFilms("КОМЕД", "description", 10, "full")));
+        assertEquals(List.of(), ids(filmController.searchFilms("комедия", "title", 10, "full")));
+        assertThrows(ValidationException.class, () -> filmController.searchFilms("дом", "genre", 10, "full"));
+        assertThrows(ValidationException.class, () -> filmController.searchFilms(" ", "title", 10, "full"));
+    }
+
+    private List<Integer> ids(Collection<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Sink;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RequestLogStrategyTest {
+
+    private final Correlation correlation = mock(Correlation.class);
+    private final Sink sink = mock(Sink.class);
+
+    private HttpRequest request(String method, String path) throws IOException {
+        HttpRequest request = mock(HttpRequest.class);
+        when(request.getMethod()).thenReturn(method);
+        when(request.getPath()).thenReturn(path);
+        when(request.withoutBody()).thenReturn(request);
+        when(request.withBody()).thenReturn(request);
+        return request;
+    }
+
+    private HttpResponse response(int status) throws IOException {
+        HttpResponse response = mock(HttpResponse.class);
+        when(response.getStatus()).thenReturn(status);
+        when(response.withoutBody()).thenReturn(response);
+        when(response.withBody()).thenReturn(response);
+        return response;
+    }
+
+    @Test
+    void shouldWriteErrorsWithBodiesAndSkipUnsampledSuccesses() throws IOException {
+        RequestLogStrategy strategy = new RequestLogStrategy(0, 400, List.of("/films"));
+        HttpRequest request = request("POST", "/films");
+        HttpResponse error = response(400);
+
+        strategy.write(correlation, request, response(200), sink);
+        verify(sink, never()).writeBoth(any(), any(), any());
+
+        strategy.write(correlation, request, error, sink);
+        verify(sink).writeBoth(correlation, request, error);
+        verify(error, never()).withoutBody();
+    }
+
+    @Test
+    void shouldWriteSampledSuccessesWithoutBodies() throws IOException {
+        RequestLogStrategy strategy = new RequestLogStrategy(1, 400, List.of("/films"));
+        HttpRequest request = request("PUT", "/films");
+        HttpResponse response = response(200);
+
+        strategy.write(correlation, request, response, sink);
+
+        verify(request).withoutBody();
+        verify(response).withoutBody();
+        verify(sink).writeBoth(correlation, request, response);
+    }
+
+    @Test
+    void shouldSkipSuccessfulExcludedReads() throws IOException {
+        RequestLogStrategy strategy = new RequestLogStrategy(1, 400, List.of("/users/*/friends"));
+        HttpRequest request = request("GET", "/users/1/friends");
+        HttpResponse response = response(200);
+
+        strategy.write(correlation, strategy.process(request), strategy.process(request, response), sink);
+
+        verify(sink, never()).writeBoth(any(), any(), any());
+    }
+
+    @Test
+    void shouldWriteExcludedReadErrorsWithBodies() throws IOException {
+        RequestLogStrategy strategy = new RequestLogStrategy(0, 400, List.of("/films/*"));
+        HttpRequest request = request("GET", "/films/999");
+        HttpResponse notFound = response(404);
+
+        HttpResponse processed = strategy.process(request, notFound);
+        strategy.write(correlation, strategy.process(request), processed, sink);
+
+        verify(notFound).withBody();
+        verify(notFound, never()).withoutBody();
+        verify(sink).writeBoth(correlation, request, notFound);
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class SerializedResponseCacheTest {
+
+    private final EntityVersions entityVersions = new EntityVersions();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private List<String> load() {
+        return List.of("Фильм", "версия " + loads.incrementAndGet());
+    }
+
+    @Test
+    void shouldReuseBytesUntilCatalogVersionChanges() {
+        SerializedResponseCache cache = new SerializedResponseCache(new ObjectMapper(), entityVersions, 16, 1024);
+
+        ResponseEntity<byte[]> first = cache.get("popular", EntityVersions.Resource.CATALOG, this::load);
+        ResponseEntity<byte[]> second = cache.get("popular", EntityVersions.Resource.CATALOG, this::load);
+        assertEquals(MediaType.APPLICATION_JSON, first.getHeaders().getContentType());
+        assertEquals("[\"Фильм\",\"версия 1\"]", new String(first.getBody(), StandardCharsets.UTF_8));
+        assertSame(first.getBody(), second.getBody());
+
+        entityVersions.filmChanged(1);
+        ResponseEntity<byte[]> third = cache.get("popular", EntityVersions.Resource.CATALOG, this::load);
+        assertEquals("[\"Фильм\",\"версия 2\"]", new String(third.getBody(), StandardCharsets.UTF_8));
+        assertEquals(1, cache.getStats().getHits());
+        assertEquals(2, cache.getStats().getMisses());
+    }
+
+    @Test
+    void shouldNotKeepOversizedBodies() {
+        SerializedResponseCache cache = new SerializedResponseCache(new ObjectMapper(), entityVersions, 16, 8);
+
+        cache.get("genres", EntityVersions.Resource.REFERENCE, this::load);
+        byte[] second = cache.get("genres", EntityVersions.Resource.REFERENCE, this::load).getBody();
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getStats().getSize());
+        assertEquals("[\"Фильм\",\"версия 2\"]", new String(second, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldDropStaleEntriesAndKeepCurrentOnesWhenFull() {
+        SerializedResponseCache cache = new SerializedResponseCache(new ObjectMapper(), entityVersions, 2, 1024);
+        cache.get("genres", EntityVersions.Resource.REFERENCE, this::load);
+        cache.get("popular:10", EntityVersions.Resource.CATALOG, this::load);
+
+        entityVersions.filmChanged(1);
+        cache.get("popular:20", EntityVersions.Resource.CATALOG, this::load);
+        assertEquals(1, cache.getStats().getEvictions());
+        assertEquals(2, cache.getStats().getSize());
+
+        // места нет и устаревших записей нет: новый ключ не кэшируется, прежние остаются
+        cache.get("popular:30", EntityVersions.Resource.CATALOG, this::load);
+        assertEquals(2, cache.getStats().getSize());
+        cache.get("genres", EntityVersions.Resource.REFERENCE, this::load);
+        assertEquals(1, cache.getStats().getHits());
+    }
+}
@@ -1,14 +1,26 @@
 package ru.yandex.practicum.filmorate.controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
 
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.FriendGraph;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionService;
+import ru.yandex.practicum.filmorate.service.LikesIndex;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.daoImpl.LikesDaoImpl;
+import ru.yandex.practicum.filmorate.storage.film.storageImpl.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.daoImpl.FriendListDaoImpl;
 import ru.yandex.practicum.filmorate.storage.user.storageImpl.InMemoryUserStorage;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.Collection;
 
@@ -16,12 +28,23 @@ import static org.junit.jupiter.api.Assertions.*;
 
 public class UserControllerTest {
 
+    private UserController createUserController() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        FriendGraph friendGraph = new FriendGraph();
+        return new UserController(new UserService(userStorage, new FriendListDaoImpl(jdbcTemplate), friendGraph,
+                        new EntityVersions()),
+                new FriendSuggestionService(friendGraph, userStorage, new SimpleMeterRegistry(), 1000, 100000),
+                new RecommendationService(new LikesIndex(), new LikesDaoImpl(jdbcTemplate), new InMemoryFilmStorage(),
+                        userStorage, 20, 10000),
+                new ObjectMapper().findAndRegisterModules());
+    }
+
     @Test
     void shouldCreateUser() {
         User user = new User("ivan@mail.ru", "Ivan2343", "Ivan",
                 LocalDate.of(1995, 5, 5));
-        UserController userController = new UserController(new UserService(new InMemoryUserStorage(),
-                new FriendListDaoImpl(new JdbcTemplate())));
+        UserController userController = createUserController();
         userController.createUser(user);
         final Collection<User> users = userController.findAll();
         assertNotNull(users, "Список пользователей пуст.");
@@ -32,8 +55,7 @@ public class UserControllerTest {
     void shouldNotCreateUserWithEmptyEmail() {
         User user = new User(null, "Ivan2343", "Ivan",
                 LocalDate.of(1995, 5, 5));
-        UserController userController = new UserController(new UserService(new InMemoryUserStorage(),
-                new FriendListDaoImpl(new JdbcTemplate())));
+        UserController userController = createUserController();
         final Collection<User> users = userController.findAll();
         assertThrows(ValidationException.class, () -> userController.createUser(user));
         assertEquals(0, users.size());
@@ -43,8 +65,7 @@ public class UserControllerTest {
     void shouldNotCreateUserWithBadEmail() {
         User user = new User("ivan--mail.ru", "Ivan2343", "Ivan",
                 LocalDate.of(1995, 5, 5));
-        UserController userController = new UserController(new UserService(new InMemoryUserStorage(),
-                new FriendListDaoImpl(new JdbcTemplate())));
+        UserController userController = createUserController();
         final Collection<User> users = userController.findAll();
         assertThrows(ValidationException.class, () -> userController.createUser(user));
         assertEquals(0, users.size());
@@ -54,8 +75,7 @@ public class UserControllerTest {
     void shouldNotCreateUserWithEmptyLogin() {
         User user = new User("ivan@mail.ru", " ", "Ivan",
                 LocalDate.of(1995, 5, 5));
-        UserController userController = new UserController(new UserService(new InMemoryUserStorage(),
-                new FriendListDaoImpl(new JdbcTemplate())));
+        UserController userController = createUserController();
         final Collection<User> users = userController.findAll();
         assertThrows(ValidationException.class, () -> userController.createUser(user));
         assertEquals(0, users.size());
@@ -65,8 +85,7 @@ public class UserControllerTest {
     void shouldNotCreateUserWithBadLogin() {
         User user = new User("ivan@mail.ru", "Ivan 2 3 4 3", "Ivan",
                 LocalDate.of(1995, 5, 5));
-        UserController userController = new UserController(new UserService(new InMemoryUserStorage(),
-                new FriendListDaoImpl(new JdbcTemplate())));
+        UserController userController = createUserController();
         final Collection<User> users = userController.findAll();
         assertThrows(ValidationException.class, () -> userController.createUser(user));
         assertEquals(0, users.size());
@@ -76,8 +95,7 @@ public class UserControllerTest {
     void shouldCreateUserWithEmptyName() {
         User user = new User("ivan@mail.ru", "Ivan2343", null,
                 LocalDate.of(1995, 5, 5));
-        UserController userController = new UserController(new UserService(new InMemoryUserStorage(),
-                new FriendListDaoImpl(new JdbcTemplate())));
+        UserController userController = createUserController();
         userController.createUser(user);
         final Collection<User> users = userController.findAll();
         assertNotNull(users, "Список пользователей пуст.");
@@ -89,8 +107,7 @@ public class UserControllerTest {
     void shouldNotCreateUserWithBadBirthday() {
         User user = new User("ivan@mail.ru", "Ivan2343", "Ivan",
                 LocalDate.of(2025, 5, 5));
-        UserController userController = new UserController(new UserService(new InMemoryUserStorage(),
-                new FriendListDaoImpl(new JdbcTemplate())));
+        UserController userController = createUserController();
         final Collection<User> users = userController.findAll();
         assertThrows(ValidationException.class, () -> userController.createUser(user));
         assertEquals(0, users.size());
@@ -100,8 +117,7 @@ public class UserControllerTest {
     void shouldUpdateUser() {
         User user = new User("ivan@mail.ru", "Ivan2343", "Ivan",
                 LocalDate.of(1995, 5, 5));
-        UserController userController = new UserController(new UserService(new InMemoryUserStorage(),
-                new FriendListDaoImpl(new JdbcTemplate())));
+        UserController userController = createUserController();
         userController.createUser(user);
         User updatedUser = new User(1, "ivan@mail.ru", "UpdatedIvan2343", "UPDIvan",
                 LocalDate.of(1995, 5, 5));
@@ -113,8 +129,7 @@ public class UserControllerTest {
     void shouldNotUpdateUserWithEmptyEmail() {
         User user = new User("ivan@mail.ru", "Ivan2343", "Ivan",
                 LocalDate.of(1995, 5, 5));
-        UserController userController = new UserController(new UserService(new InMemoryUserStorage(),
-                new FriendListDaoImpl(new JdbcTemplate())));
+        UserController userController = createUserController();
         userController.createUser(user);
 
         assertThrows(ValidationException.class, () -> userController.updateUser(new User(1, null,
@@ -125,8 +140,7 @@ public class UserControllerTest {
     void shouldNotUpdateUserWithBadEmail() {
         User user = new User("ivan@mail.ru", "Ivan2343", "Ivan",
                 LocalDate.of(1995, 5, 5));
-        UserController userController = new UserController(new UserService(new InMemoryUserStorage(),
-                new FriendListDaoImpl(new JdbcTemplate())));
+        UserController userController = createUserController();
         userController.createUser(user);
 
         assertThrows(ValidationException.class, () -> userController.updateUser(new User(1, "ivan--mail.ru",
@@ -137,8 +151,7 @@ public class UserControllerTest {
     void shouldNotUpdateUserWithEmptyLogin() {
         User user = new User("ivan@mail.ru", "Ivan2343", "Ivan",
                 LocalDate.of(1995, 5, 5));
-        UserController userController = new UserController(new UserService(new InMemoryUserStorage(),
-                new FriendListDaoImpl(new JdbcTemplate())));
+        UserController userController = createUserController();
         userController.createUser(user);
 
         assertThrows(ValidationException.class, () -> userController.updateUser(new User(1, "ivan@mail.ru",
@@ -150,8 +163,7 @@ public class UserControllerTest {
     void shouldNotUpdateUserWithBadLogin() {
         User user = new User("ivan@mail.ru", "Ivan2343", "Ivan",
                 LocalDate.of(1995, 5, 5));
-        UserController userController = new UserController(new UserService(new InMemoryUserStorage(),
-                new FriendListDaoImpl(new JdbcTemplate())));
+        UserController userController = createUserController();
         userController.createUser(user);
 
         assertThrows(ValidationException.class, () -> userController.updateUser(new User(1, "ivan@mail.ru",
@@ -162,8 +174,7 @@ public class UserControllerTest {
     void shouldUpdateUserWithEmptyName() {
         User user = new User("ivan@mail.ru", "Ivan2343", null,
                 LocalDate.of(1995, 5, 5));
-        UserController userController = new UserController(new UserService(new InMemoryUserStorage(),
-                new FriendListDaoImpl(new JdbcTemplate())));
+        UserController userController = createUserController();
         userController.createUser(user);
         User updatedUser = new User(1, "ivan@mail.ru", "UPDIvan2343", null,
                 LocalDate.of(1995, 5, 5));
@@ -179,12 +190,24 @@ public class UserControllerTest {
     void shouldNotUpdateUserWithBadBirthday() {
         User user = new User("ivan@mail.ru", "Ivan2343", null,
                 LocalDate.of(1995, 5, 5));
-        UserController userController = new UserController(new UserService(new InMemoryUserStorage(),
-                new FriendListDaoImpl(new JdbcTemplate())));
+        UserController userController = createUserController();
         userController.createUser(user);
 
         assertThrows(ValidationException.class, () -> userController.updateUser(new User(1, "ivan@mail.ru",
                 "Ivan2343", "Ivan", LocalDate.of(2025, 5, 5))));
     }
-}
 
+    @Test
+    void shouldStreamAllUsersAsJsonArray() throws IOException {
+        UserController userController = createUserController();
+        userController.createUser(new User("ivan@mail.ru", "Ivan2343", "Ivan", LocalDate.of(1995, 5, 5)));
+        userController.createUser(new User("petr@mail.ru", "Petr2343", "Petr", LocalDate.of(1996, 6, 6)));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        userController.streamAll().writeTo(outputStream);
+
+        JsonNode users = new ObjectMapper().readTree(outputStream.toByteArray());
+        assertTrue(users.isArray());
+        assertEquals(2, users.size());
+        assertEquals("Petr2343", users.get(1).get("login").asText());
+    }
+}
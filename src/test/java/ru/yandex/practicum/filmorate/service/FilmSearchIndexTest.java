@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FilmSearchIndexTest {
+
+    private static final Set<FilmSearchIndex.Field> ALL_FIELDS = EnumSet.allOf(FilmSearchIndex.Field.class);
+
+    private final FilmSearchIndex index = new FilmSearchIndex();
+
+    private void putFilm(int id, String name, String description) {
+        index.putFilm(new Film(id, name, description, LocalDate.of(2000, 1, 1), 90));
+    }
+
+    @Test
+    void shouldNormalizeRussianTokens() {
+        assertEquals(List.of("ежик", "в", "тумане", "1975"), FilmSearchIndex.tokenize("Ёжик в ТУМАНЕ (1975)"));
+    }
+
+    @Test
+    void shouldRankTitleMatchesAndLikesHigher() {
+        putFilm(1, "Весна", "Фильм про любовь");
+        putFilm(2, "Любовь и голуби", "Комедия");
+        putFilm(3, "Служебный роман", "История любви");
+
+        assertEquals(List.of(2, 1), index.search("любовь", ALL_FIELDS, filmId -> 0, 10));
+        // префикс «любв» находит только «любви»
+        assertEquals(List.of(3), index.search("любв", ALL_FIELDS, filmId -> 0, 10));
+        // много лайков поднимает фильм с совпадением только в описании
+        Map<Integer, Integer> likes = Map.of(1, 1000);
+        assertEquals(List.of(1, 2), index.search("любовь", ALL_FIELDS, filmId -> likes.getOrDefault(filmId, 0), 10));
+    }
+
+    @Test
+    void shouldRequireAllQueryTokensAndReindexOnUpdate() {
+        putFilm(1, "Белое солнце пустыни", "Восточный вестерн");
+        putFilm(2, "Солнечный удар", "Драма");
+
+        assertEquals(List.of(1, 2), index.search("солн", ALL_FIELDS, filmId -> 0, 10));
+        assertEquals(List.of(1), index.search("солн пуст", ALL_FIELDS, filmId -> 0, 10));
+
+        putFilm(1, "Белое солнце", "Восточный вестерн");
+
+        assertEquals(List.of(), index.search("пустыни", ALL_FIELDS, filmId -> 0, 10));
+        assertEquals(List.of(1), index.search("вестерн", EnumSet.of(FilmSearchIndex.Field.DESCRIPTION),
+                filmId -> 0, 10));
+    }
+}
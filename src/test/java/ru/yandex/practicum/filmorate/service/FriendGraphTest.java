@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+public class FriendGraphTest {
+
+    @Test
+    void shouldKeepFriendIdsSortedAfterChanges() {
+        FriendGraph graph = new FriendGraph();
+        graph.load(Map.of(1, List.of(5, 2, 9)));
+        graph.addFriend(1, 7);
+        graph.addFriend(1, 2);
+        graph.addFriend(1, 1);
+        graph.deleteFriend(1, 9);
+        graph.deleteFriend(1, 100);
+
+        assertArrayEquals(new int[]{1, 2, 5, 7}, graph.getFriendIds(1));
+        assertArrayEquals(new int[0], graph.getFriendIds(2));
+    }
+
+    @Test
+    void shouldIntersectFriendLists() {
+        FriendGraph graph = new FriendGraph();
+        graph.load(Map.of(1, List.of(2, 3, 5, 8, 13), 2, List.of(1, 3, 4, 8, 13, 21)));
+
+        assertArrayEquals(new int[]{3, 8, 13}, graph.getCommonFriendIds(1, 2));
+        assertArrayEquals(new int[0], graph.getCommonFriendIds(1, 3));
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.storageImpl.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FriendSuggestionServiceTest {
+
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+    private final FriendGraph friendGraph = new FriendGraph();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private FriendSuggestionService createService(int maxFriends, int maxEdges) {
+        for (int i = 1; i <= 7; i++) {
+            userStorage.createUser(new User("user" + i + "@mail.ru", "user" + i, "User" + i,
+                    LocalDate.of(1990, 1, 1)));
+        }
+        // у пользователя 1 друзья 2, 3, 4; пользователь 6 дружит с тремя из них, 5 — с двумя, 7 — с одним
+        friendGraph.load(Map.of(
+                1, List.of(2, 3, 4),
+                2, List.of(1, 5, 6, 7),
+                3, List.of(1, 5, 6),
+                4, List.of(6)));
+        return new FriendSuggestionService(friendGraph, userStorage, meterRegistry, maxFriends, maxEdges);
+    }
+
+    private List<Integer> suggestedIds(FriendSuggestionService service, int userId, int limit) {
+        return service.getSuggestions(userId, limit).stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void shouldRankNonFriendsByMutualFriends() {
+        FriendSuggestionService service = createService(1000, 100000);
+
+        assertEquals(List.of(6, 5, 7), suggestedIds(service, 1, 10));
+        assertEquals(List.of(6, 5), suggestedIds(service, 1, 2));
+        assertEquals(8.0, meterRegistry.summary("filmorate.friends.suggestions.traversed.edges").max());
+    }
+
+    @Test
+    void shouldStopTraversalAtEdgeLimit() {
+        FriendSuggestionService service = createService(1000, 3);
+
+        // просмотрены только первые три ребра: 1, 5 и 6 из списка друзей пользователя 2
+        assertEquals(List.of(5, 6), suggestedIds(service, 1, 10));
+        assertEquals(1.0, meterRegistry.counter("filmorate.friends.suggestions.truncated").count());
+    }
+
+    @Test
+    void shouldRejectInvalidLimit() {
+        FriendSuggestionService service = createService(1000, 100000);
+
+        assertThrows(ValidationException.class, () -> service.getSuggestions(1, 0));
+    }
+}
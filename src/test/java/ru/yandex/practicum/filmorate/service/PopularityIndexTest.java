@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PopularityIndexTest {
+
+    @Test
+    void shouldReturnFilmsOrderedByLikes() {
+        PopularityIndex index = new PopularityIndex();
+        index.load(Map.of(1, 0, 2, 5, 3, 2));
+        index.addFilm(4);
+        index.increment(1);
+        index.decrement(2);
+
+        assertEquals(List.of(2, 3, 1, 4), index.findTop(10));
+        assertEquals(List.of(2, 3), index.findTop(2));
+    }
+
+    @Test
+    void shouldNotHideUnpairedDecrement() {
+        PopularityIndex index = new PopularityIndex();
+        index.addFilm(1);
+        index.decrement(1);
+
+        // лайки и их снятие сериализуются в FilmService, поэтому рассинхронизация видна, а не скрыта нулем
+        assertEquals(-1, index.getLikeCount(1));
+        assertEquals(List.of(1), index.findTop(10));
+    }
+
+    @Test
+    void shouldKeepCountsUnderConcurrentUpdates() throws InterruptedException {
+        PopularityIndex index = new PopularityIndex();
+        index.addFilm(1);
+        index.addFilm(2);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.submit(() -> index.increment(1));
+            executor.submit(() -> index.increment(2));
+            executor.submit(() -> index.decrement(2));
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertEquals(1000, index.getLikeCount(1));
+        assertEquals(List.of(1, 2), index.findTop(10));
+    }
+}
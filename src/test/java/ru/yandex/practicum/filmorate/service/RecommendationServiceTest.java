@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.daoImpl.LikesDaoImpl;
+import ru.yandex.practicum.filmorate.storage.film.storageImpl.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.storageImpl.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RecommendationServiceTest {
+
+    private final LikesIndex likesIndex = new LikesIndex();
+    private final RecommendationService service = createService(10000);
+
+    private RecommendationService createService(int maxCachedUsers) {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        for (int i = 1; i <= 6; i++) {
+            filmStorage.createFilm(new Film("Film" + i, "Description", LocalDate.of(1990, 1, 1), 90));
+        }
+        for (int i = 1; i <= 4; i++) {
+            userStorage.createUser(new User("user" + i + "@mail.ru", "user" + i, "User" + i,
+                    LocalDate.of(1990, 1, 1)));
+        }
+        // пользователь 2 похож на 1 сильнее (два общих фильма), чем пользователь 3 (один общий фильм)
+        likesIndex.load(Map.of(
+                1, List.of(1, 2, 3),
+                2, List.of(1, 2, 4, 5),
+                3, List.of(3, 6),
+                4, List.of(6)));
+        return new RecommendationService(likesIndex, new LikesDaoImpl(new JdbcTemplate()), filmStorage,
+                userStorage, 20, maxCachedUsers);
+    }
+
+    private List<Integer> recommendedIds(int userId, int limit) {
+        return recommendedIds(service, userId, limit);
+    }
+
+    private List<Integer> recommendedIds(RecommendationService service, int userId, int limit) {
+        return service.getRecommendations(userId, limit).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void shouldRecommendFilmsOfMostSimilarUsersFirst() {
+        assertEquals(List.of(4, 5, 6), recommendedIds(1, 10));
+        assertEquals(List.of(4), recommendedIds(1, 1));
+        assertEquals(List.of(3), recommendedIds(4, 10));
+    }
+
+    @Test
+    void shouldRecomputeRecommendationsAfterLikeChanges() {
+        assertEquals(List.of(4, 5, 6), recommendedIds(1, 10));
+
+        service.onLikeAdded(4, 1);
+        service.onLikeAdded(6, 2);
+
+        // фильм 6 теперь рекомендуют оба похожих пользователя
+        assertEquals(List.of(6, 5), recommendedIds(1, 10));
+
+        service.onLikeDeleted(4, 1);
+
+        assertEquals(List.of(6, 4, 5), recommendedIds(1, 10));
+    }
+
+    @Test
+    void shouldKeepCachedRecommendationsWhenLikeDoesNotAffectUser() {
+        assertEquals(List.of(4, 5, 6), recommendedIds(1, 10));
+        // индекс меняется в обход сервиса: пока кэш не сброшен, отдается прежний список
+        likesIndex.addLike(6, 2);
+
+        // пользователь 4 не пересекается с пользователем 1, а фильм 5 не из его лайков
+        service.onLikeAdded(5, 4);
+
+        assertEquals(List.of(4, 5, 6), recommendedIds(1, 10));
+
+        // общий фильм делает пользователя 4 кандидатом, и список считается заново
+        service.onLikeAdded(1, 4);
+
+        assertEquals(List.of(6, 5, 4), recommendedIds(1, 10));
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedRecommendations() {
+        RecommendationService smallService = createService(1);
+        assertEquals(List.of(4, 5, 6), recommendedIds(smallService, 1, 10));
+        assertEquals(List.of(3), recommendedIds(smallService, 4, 10));
+        likesIndex.addLike(6, 2);
+
+        // запись пользователя 1 вытеснена, поэтому видны лайки, добавленные в обход сервиса
+        assertEquals(List.of(6, 4, 5), recommendedIds(smallService, 1, 10));
+    }
+
+    @Test
+    void shouldThrowForUnknownUser() {
+        assertThrows(UserNotFoundException.class, () -> service.getRecommendations(100, 10));
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.user.storageImpl.InMemoryUserStorage;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StorageMetricsAspectTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private UserStorage createInstrumentedStorage() {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new InMemoryUserStorage());
+        proxyFactory.addAspect(new StorageMetricsAspect(meterRegistry));
+        return proxyFactory.getProxy();
+    }
+
+    private long calls(String method, String outcome) {
+        return meterRegistry.get(StorageMetricsAspect.CALLS_METRIC)
+                .tag("storage", "UserStorage")
+                .tag("implementation", "InMemoryUserStorage")
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .timer()
+                .count();
+    }
+
+    @Test
+    void shouldRecordCallsByOutcomeAndReturnedRows() {
+        UserStorage storage = createInstrumentedStorage();
+        storage.createUser(new User("first@mail.ru", "first", "First", LocalDate.of(1990, 1, 1)));
+        storage.createUser(new User("second@mail.ru", "second", "Second", LocalDate.of(1990, 1, 1)));
+        storage.findUserById(1);
+        assertThrows(UserNotFoundException.class, () -> storage.findUserById(99));
+        assertThrows(ValidationException.class, () -> storage.createUser(new User("", "bad", "Bad",
+                LocalDate.of(1990, 1, 1))));
+        storage.findAll();
+
+        assertEquals(2, calls("createUser", "success"));
+        assertEquals(1, calls("createUser", "validation_error"));
+        assertEquals(1, calls("findUserById", "success"));
+        assertEquals(1, calls("findUserById", "not_found"));
+        assertEquals(2, meterRegistry.get(StorageMetricsAspect.ROWS_METRIC)
+                .tag("method", "findAll")
+                .summary()
+                .totalAmount());
+    }
+}
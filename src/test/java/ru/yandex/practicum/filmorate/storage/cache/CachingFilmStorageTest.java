@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.storageImpl.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+public class CachingFilmStorageTest {
+
+    private Film createFilm(CachingFilmStorage storage, String name) {
+        return storage.createFilm(new Film(name, "Description", LocalDate.of(1990, 11, 10), 90));
+    }
+
+    @Test
+    void shouldServeRepeatedReadsFromCache() {
+        CachingFilmStorage storage = new CachingFilmStorage(new InMemoryFilmStorage(), 10, 60);
+        Film film = createFilm(storage, "Home alone");
+
+        assertEquals(film, storage.findFilmById(film.getId()));
+        assertEquals(film, storage.findFilmById(film.getId()));
+        CacheStats stats = storage.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(0.5, stats.getHitRatio());
+    }
+
+    @Test
+    void shouldReturnCopiesOfCachedFilms() {
+        CachingFilmStorage storage = new CachingFilmStorage(new InMemoryFilmStorage(), 10, 60);
+        Film film = createFilm(storage, "Home alone");
+        storage.findFilmById(film.getId());
+
+        Film cached = storage.findFilmById(film.getId());
+        cached.setName("Changed");
+        cached.getLikes().add(1);
+
+        Film again = storage.findFilmById(film.getId());
+        assertNotSame(cached, again);
+        assertEquals("Home alone", again.getName());
+        assertEquals(0, again.getLikes().size());
+    }
+
+    @Test
+    void shouldNotCacheFilmInvalidatedWhileLoading() {
+        CachingFilmStorage[] holder = new CachingFilmStorage[1];
+        CachingFilmStorage storage = new CachingFilmStorage(new InMemoryFilmStorage() {
+            @Override
+            public Film findFilmById(Integer filmId) {
+                Film film = super.findFilmById(filmId);
+                // фильм обновили, пока кэш читал прежнюю версию
+                holder[0].invalidate(filmId);
+                return film;
+            }
+        }, 10, 60);
+        holder[0] = storage;
+        Film film = createFilm(storage, "Home alone");
+
+        storage.findFilmById(film.getId());
+
+        assertEquals(0, storage.getStats().getSize());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedFilm() {
+        CachingFilmStorage storage = new CachingFilmStorage(new InMemoryFilmStorage(), 2, 60);
+        Film first = createFilm(storage, "First");
+        Film second = createFilm(storage, "Second");
+        Film third = createFilm(storage, "Third");
+
+        storage.findFilmsByIds(List.of(first.getId(), second.getId()));
+        storage.findFilmById(first.getId());
+        storage.findFilmById(third.getId());
+
+        CacheStats stats = storage.getStats();
+        assertEquals(1, stats.getEvictions());
+        assertEquals(2, stats.getSize());
+        storage.findFilmById(second.getId());
+        assertEquals(stats.getMisses() + 1, storage.getStats().getMisses());
+    }
+
+    @Test
+    void shouldInvalidateFilmOnUpdateAndLikes() {
+        CachingFilmStorage storage = new CachingFilmStorage(new InMemoryFilmStorage(), 10, 60);
+        Film film = createFilm(storage, "Home alone");
+        storage.findFilmById(film.getId());
+
+        storage.updateFilm(new Film(film.getId(), "UPD Home alone", "Description",
+                LocalDate.of(1990, 11, 10), 90));
+        assertEquals("UPD Home alone", storage.findFilmById(film.getId()).getName());
+
+        storage.onFilmLikesChanged(film.getId());
+        storage.findFilmById(film.getId());
+        assertEquals(3, storage.getStats().getMisses());
+    }
+
+    @Test
+    void shouldExpireFilmsAfterTtl() {
+        CachingFilmStorage storage = new CachingFilmStorage(new InMemoryFilmStorage(), 10, 0);
+        Film film = createFilm(storage, "Home alone");
+        storage.findFilmById(film.getId());
+        storage.findFilmById(film.getId());
+
+        assertEquals(0, storage.getStats().getHits());
+        assertEquals(1, storage.getStats().getEvictions());
+    }
+}
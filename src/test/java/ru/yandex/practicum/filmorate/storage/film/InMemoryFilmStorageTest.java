@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.storageImpl.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class InMemoryFilmStorageTest {
+
+    private Film createFilm(InMemoryFilmStorage storage, String name) {
+        return createFilm(storage, name, Set.of());
+    }
+
+    private Film createFilm(InMemoryFilmStorage storage, String name, Set<Integer> likes) {
+        return storage.createFilm(new Film(null, name, "Description", LocalDate.of(1990, 11, 10), 90, null,
+                new HashSet<>(likes), null));
+    }
+
+    @Test
+    void shouldKeepAllIdsUnderConcurrentWrites() throws Exception {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Film>> created = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                String name = "Film " + i;
+                created.add(executor.submit(() -> createFilm(storage, name)));
+            }
+            for (Future<Film> future : created) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(100, storage.findAll().stream().map(Film::getId).distinct().count());
+    }
+
+    @Test
+    void shouldKeepLikesAndPopularOrderUnderConcurrentLikesAndUnlikes() throws Exception {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        Film first = createFilm(storage, "First");
+        Film second = createFilm(storage, "Second");
+        Film third = createFilm(storage, "Third");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int userId = 1; userId <= 300; userId++) {
+                int id = userId;
+                tasks.add(executor.submit(() -> {
+                    storage.onLikeAdded(first.getId(), id);
+                    storage.onLikeAdded(second.getId(), id);
+                    storage.onLikeAdded(third.getId(), id);
+                    // второй фильм теряет все лайки, третий — каждый второй
+                    storage.onLikeDeleted(second.getId(), id);
+                    if (id % 2 == 0) {
+                        storage.onLikeDeleted(third.getId(), id);
+                    }
+                }));
+            }
+            for (Future<?> future : tasks) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(300, storage.findFilmById(first.getId()).getLikes().size());
+        assertEquals(0, storage.findFilmById(second.getId()).getLikes().size());
+        assertEquals(150, storage.findFilmById(third.getId()).getLikes().size());
+        assertFalse(storage.addLike(first.getId(), 1));
+        assertFalse(storage.deleteLike(second.getId(), 1));
+        List<Integer> popular = storage.findPopularFilms(3, null, null).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+        assertEquals(List.of(first.getId(), third.getId(), second.getId()), popular);
+    }
+
+    @Test
+    void shouldReturnPopularFilmsByLikeCount() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        createFilm(storage, "First");
+        Film second = createFilm(storage, "Second", Set.of(1, 2));
+        Film third = createFilm(storage, "Third", Set.of(1));
+
+        List<Integer> popular = storage.findPopularFilms(2, null, null).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+
+        assertEquals(List.of(second.getId(), third.getId()), popular);
+    }
+}